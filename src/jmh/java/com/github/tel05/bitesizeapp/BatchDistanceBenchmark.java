@@ -0,0 +1,59 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks filling a distance column for a whole dataset: one calculateDistance call per
+ * restaurant versus the DistanceKernel batch, in both modes, and the equirectangular mode with the Vector API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class BatchDistanceBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private float[] lats;
+    private float[] lngs;
+    private float[] miles;
+
+    @Setup
+    public void setUp() {
+        RestaurantStore store = RestaurantStore.of(SyntheticRestaurants.generate(size, 42));
+        lats = store.latitudeColumn();
+        lngs = store.longitudeColumn();
+        miles = new float[size];
+    }
+
+    @Benchmark
+    public float[] perPointHaversine() {
+        for (int i = 0; i < lats.length; i++) {
+            miles[i] = NearbyRestaurants.calculateDistance(SyntheticRestaurants.ORIGIN_LAT, SyntheticRestaurants.ORIGIN_LNG, lats[i], lngs[i]);
+        }
+        return miles;
+    }
+
+    @Benchmark
+    public float[] kernelHaversine() {
+        DistanceKernel.distances(SyntheticRestaurants.ORIGIN_LAT, SyntheticRestaurants.ORIGIN_LNG, lats, lngs, miles, DistanceKernel.Mode.HAVERSINE);
+        return miles;
+    }
+
+    @Benchmark
+    public float[] kernelEquirectangular() {
+        DistanceKernel.distances(SyntheticRestaurants.ORIGIN_LAT, SyntheticRestaurants.ORIGIN_LNG, lats, lngs, miles, DistanceKernel.Mode.EQUIRECTANGULAR);
+        return miles;
+    }
+
+    @Benchmark
+    public float[] vectorKernelEquirectangular() {
+        VectorDistanceKernel.equirectangular(SyntheticRestaurants.ORIGIN_LAT, SyntheticRestaurants.ORIGIN_LNG, lats, lngs, miles);
+        return miles;
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a single compare of the comparator chains used in Main (field lookup through the
+ * restaurant map, boxed key, then ID tiebreaker), walking adjacent pairs of the dataset.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparatorBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private String[] ids;
+    private int cursor;
+    private Comparator<String> distanceComparator;
+    private Comparator<String> priceComparator;
+    private Comparator<String> ratingComparator;
+
+    @Setup
+    public void setUp() {
+        Map<String, Restaurant> restaurantMap = new HashMap<>();
+        for (Restaurant restaurant : SyntheticRestaurants.generate(size, 42)) {
+            restaurantMap.put(restaurant.getId(), restaurant);
+        }
+        ids = restaurantMap.keySet().toArray(new String[0]);
+        distanceComparator = Comparator.comparing((String id) -> restaurantMap.get(id).getDistance())
+                .thenComparing(id -> restaurantMap.get(id).getId());
+        priceComparator = Comparator.comparing((String id) -> restaurantMap.get(id).getPriceLevel())
+                .thenComparing(id -> restaurantMap.get(id).getId());
+        ratingComparator = Comparator.comparing((String id) -> restaurantMap.get(id).getRating())
+                .thenComparing(id -> restaurantMap.get(id).getId());
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = i + 2 < ids.length ? i + 1 : 0;
+        return i;
+    }
+
+    @Benchmark
+    public int distanceChain() {
+        int i = next();
+        return distanceComparator.compare(ids[i], ids[Math.min(i + 1, ids.length - 1)]);
+    }
+
+    @Benchmark
+    public int priceChain() {
+        int i = next();
+        return priceComparator.compare(ids[i], ids[Math.min(i + 1, ids.length - 1)]);
+    }
+
+    @Benchmark
+    public int ratingChain() {
+        int i = next();
+        return ratingComparator.compare(ids[i], ids[Math.min(i + 1, ids.length - 1)]);
+    }
+}
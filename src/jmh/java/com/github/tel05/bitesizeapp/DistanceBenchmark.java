@@ -0,0 +1,43 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the haversine distance in NearbyRestaurants, from the dataset origin
+ * to one restaurant per call, walking the dataset.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private double[] lats;
+    private double[] lngs;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Restaurant[] restaurants = SyntheticRestaurants.generate(size, 42);
+        lats = new double[size];
+        lngs = new double[size];
+        for (int i = 0; i < size; i++) {
+            lats[i] = restaurants[i].getLatitude();
+            lngs[i] = restaurants[i].getLongitude();
+        }
+    }
+
+    @Benchmark
+    public float calculateDistance() {
+        int i = cursor;
+        cursor = i + 1 < lats.length ? i + 1 : 0;
+        return NearbyRestaurants.calculateDistance(SyntheticRestaurants.ORIGIN_LAT, SyntheticRestaurants.ORIGIN_LNG, lats[i], lngs[i]);
+    }
+}
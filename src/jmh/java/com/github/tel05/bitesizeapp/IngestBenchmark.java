@@ -0,0 +1,65 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks bulk loading of a CSV or JSON lines export held in memory (as UTF-8 bytes,
+ * so decoding is included). Throughput in MB/s is the export size divided by the time per operation;
+ * setUp prints the export size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngestBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"csv", "jsonl"})
+    public String format;
+
+    private byte[] export;
+
+    @Setup
+    public void setUp() throws IOException {
+        Restaurant[] restaurants = SyntheticRestaurants.generate(size, 42);
+        StringBuilder out = new StringBuilder();
+        if (format.equals("csv")) {
+            out.append("id,name,address,phoneNumber,distance,rating,priceLevel,latitude,longitude\n");
+            for (Restaurant r : restaurants) {
+                out.append(r.getId()).append(',').append(r.getName()).append(",\"").append(r.getAddress()).append("\",")
+                        .append(r.getPhoneNum()).append(',').append(r.getDistance()).append(',').append(r.getRating()).append(',')
+                        .append(r.getPriceLevel()).append(',').append(r.getLatitude()).append(',').append(r.getLongitude()).append('\n');
+            }
+        } else {
+            for (Restaurant r : restaurants) {
+                out.append("{\"id\":\"").append(r.getId()).append("\",\"name\":\"").append(r.getName())
+                        .append("\",\"address\":\"").append(r.getAddress()).append("\",\"phoneNumber\":\"").append(r.getPhoneNum())
+                        .append("\",\"distance\":").append(r.getDistance()).append(",\"rating\":").append(r.getRating())
+                        .append(",\"priceLevel\":").append(r.getPriceLevel()).append(",\"latitude\":").append(r.getLatitude())
+                        .append(",\"longitude\":").append(r.getLongitude()).append("}\n");
+            }
+        }
+        export = out.toString().getBytes(StandardCharsets.UTF_8);
+        RestaurantIngest.Report report = load();
+        if (report.added() != size) throw new IllegalStateException("Loaded " + report.added() + " of " + size + " rows: " + report.errors());
+        System.out.printf("%n%s export: %.1f MB%n", format, export.length / 1e6);
+    }
+
+    @Benchmark
+    public RestaurantIngest.Report load() throws IOException {
+        Reader in = new InputStreamReader(new ByteArrayInputStream(export), StandardCharsets.UTF_8);
+        RestaurantStore store = new RestaurantStore();
+        return format.equals("csv") ? RestaurantIngest.csv(in, store) : RestaurantIngest.jsonLines(in, store);
+    }
+}
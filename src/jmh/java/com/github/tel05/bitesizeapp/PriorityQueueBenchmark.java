@@ -0,0 +1,62 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks MinPQ and MaxPQ over restaurant IDs with the comparator chains used in Main:
+ * insert every ID then drain the queue, and bottom-up heap construction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriorityQueueBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private String[] ids;
+    private Comparator<String> distanceComparator;
+    private Comparator<String> ratingComparator;
+
+    @Setup
+    public void setUp() {
+        Map<String, Restaurant> restaurantMap = new HashMap<>();
+        for (Restaurant restaurant : SyntheticRestaurants.generate(size, 42)) {
+            restaurantMap.put(restaurant.getId(), restaurant);
+        }
+        ids = restaurantMap.keySet().toArray(new String[0]);
+        distanceComparator = Comparator.comparing((String id) -> restaurantMap.get(id).getDistance())
+                .thenComparing(id -> restaurantMap.get(id).getId());
+        ratingComparator = Comparator.comparing((String id) -> restaurantMap.get(id).getRating())
+                .thenComparing(id -> restaurantMap.get(id).getId());
+    }
+
+    @Benchmark
+    public void minPQInsertDelMin(Blackhole bh) {
+        MinPQ<String> pq = new MinPQ<>(distanceComparator);
+        for (String id : ids) pq.insert(id);
+        while (!pq.isEmpty()) bh.consume(pq.delMin());
+    }
+
+    @Benchmark
+    public void maxPQInsertDelMax(Blackhole bh) {
+        MaxPQ<String> pq = new MaxPQ<>(ratingComparator);
+        for (String id : ids) pq.insert(id);
+        while (!pq.isEmpty()) bh.consume(pq.delMax());
+    }
+
+    @Benchmark
+    public MinPQ<String> minPQHeapify() {
+        // includes the copy of the key array, since the constructor keeps a reference to its own array
+        return new MinPQ<>(ids.clone());
+    }
+}
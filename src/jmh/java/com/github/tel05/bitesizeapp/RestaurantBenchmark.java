@@ -0,0 +1,52 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Restaurant model: construction (with validation), hashCode and toString,
+ * one restaurant per call, walking the dataset.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestaurantBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private Restaurant[] restaurants;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        restaurants = SyntheticRestaurants.generate(size, 42);
+    }
+
+    private Restaurant next() {
+        int i = cursor;
+        cursor = i + 1 < restaurants.length ? i + 1 : 0;
+        return restaurants[i];
+    }
+
+    @Benchmark
+    public Restaurant construct() {
+        Restaurant r = next();
+        return new Restaurant(r.getId(), r.getName(), r.getAddress(), r.getPhoneNum(),
+                r.getDistance(), r.getRating(), r.getPriceLevel(), r.getLatitude(), r.getLongitude());
+    }
+
+    @Benchmark
+    public int hashCodeOf() {
+        return next().hashCode();
+    }
+
+    @Benchmark
+    public String toStringOf() {
+        return next().toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks loading a dataset from a snapshot file: opening it, scanning a numeric column,
+ * and (for comparison) building every Restaurant object, whose allocation per operation
+ * is the heap the dataset takes as objects.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("restaurants", ".snapshot");
+        RestaurantSnapshot.write(RestaurantStore.of(SyntheticRestaurants.generate(size, 42)), file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public RestaurantSnapshot open() throws IOException {
+        return RestaurantSnapshot.open(file);
+    }
+
+    @Benchmark
+    public float openAndSumDistances() throws IOException {
+        RestaurantSnapshot snapshot = RestaurantSnapshot.open(file);
+        float sum = 0;
+        for (int row = 0; row < snapshot.size(); row++) sum += snapshot.distance(row);
+        return sum;
+    }
+
+    @Benchmark
+    public Restaurant[] openAsRestaurants() throws IOException {
+        RestaurantSnapshot snapshot = RestaurantSnapshot.open(file);
+        Restaurant[] restaurants = new Restaurant[snapshot.size()];
+        for (int row = 0; row < restaurants.length; row++) restaurants[row] = snapshot.restaurant(row);
+        return restaurants;
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks CLI startup: the time from launching {@code java -jar} to the first
+ * "Enter your zip code" prompt, without and with the class-data-sharing archive.
+ * <p>
+ * Needs the runnable jar and the archive: run {@code mvn -Pcds,jmh package} first.
+ * Their locations can be changed with {@code -Dbitesize.jar} and {@code -Dbitesize.cdsArchive}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+    private static final byte[] PROMPT = "Enter your zip code:".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"none", "cds"})
+    public String archive;
+
+    private List<String> command;
+    private Process process;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path jar = Path.of(System.getProperty("bitesize.jar", "target/bitesize-1.0-SNAPSHOT.jar"));
+        Path jsa = Path.of(System.getProperty("bitesize.cdsArchive", "target/bitesize.jsa"));
+        if (!Files.exists(jar) || (archive.equals("cds") && !Files.exists(jsa))) {
+            throw new IllegalStateException("Missing " + jar + " or " + jsa + ", run mvn -Pcds package first.");
+        }
+        command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        // fail instead of silently starting without the archive, so "cds" always measures it
+        if (archive.equals("cds")) command.addAll(List.of("-XX:SharedArchiveFile=" + jsa, "-Xshare:on"));
+        // keep the benchmark away from the real ZIP code cache
+        command.add("-Duser.home=" + Files.createTempDirectory("bitesize-startup"));
+        command.addAll(List.of("-jar", jar.toString()));
+    }
+
+    @Benchmark
+    public int timeToPrompt() throws IOException {
+        process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        InputStream out = process.getInputStream();
+        int matched = 0;
+        int read = 0;
+        while (matched < PROMPT.length) {
+            int b = out.read();
+            if (b < 0) throw new IllegalStateException("The app exited before prompting for a zip code.");
+            matched = b == PROMPT[matched] ? matched + 1 : (b == PROMPT[0] ? 1 : 0);
+            read++;
+        }
+        return read;
+    }
+
+    @TearDown(Level.Invocation)
+    public void exit() throws IOException, InterruptedException {
+        process.getOutputStream().write("exit\n".getBytes(StandardCharsets.UTF_8));
+        process.getOutputStream().close();
+        process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        process.waitFor();
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.Random;
+
+/**
+ * This class generates synthetic restaurant datasets for the benchmarks.
+ * Restaurants are scattered over a 0.6 x 0.6 degree box around Chicago, with
+ * uniform ratings, price levels and distances, so every benchmark sees the same data for a given size and seed.
+ */
+public class SyntheticRestaurants {
+    public static final double ORIGIN_LAT = 41.9243;
+    public static final double ORIGIN_LNG = -87.7012;
+    private static final String[] STREETS = {"N Milwaukee Ave", "N Kedzie Ave", "W Logan Blvd", "W Armitage Ave", "N California Ave"};
+
+    public static Restaurant[] generate(int size, long seed) {
+        Random random = new Random(seed);
+        Restaurant[] restaurants = new Restaurant[size];
+        for (int i = 0; i < size; i++) {
+            double lat = ORIGIN_LAT - 0.3 + random.nextDouble() * 0.6;
+            double lng = ORIGIN_LNG - 0.3 + random.nextDouble() * 0.6;
+            restaurants[i] = new Restaurant(
+                    "place-" + i,
+                    "Restaurant " + i,
+                    (1000 + random.nextInt(9000)) + " " + STREETS[random.nextInt(STREETS.length)] + ", Chicago, IL 60647",
+                    String.format("(773)%03d-%04d", random.nextInt(1000), random.nextInt(10000)),
+                    NearbyRestaurants.calculateDistance(ORIGIN_LAT, ORIGIN_LNG, lat, lng),
+                    1.0f + random.nextInt(41) / 10.0f,
+                    random.nextInt(5),
+                    lat,
+                    lng);
+        }
+        return restaurants;
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.tel05.bitesizeapp;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API version of the DistanceKernel equirectangular loop, for BatchDistanceBenchmark.
+// It is kept with the benchmarks so only the jmh profile compiles with the incubator module.
+// There is no haversine version: lanewise SIN/COS/ASIN are not intrinsified on every
+// platform, and where they aren't they were measured slower than the scalar loop.
+final class VectorDistanceKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final float DEG_TO_RAD = (float) (Math.PI / 180);
+    private static final float RADIUS = (float) DistanceKernel.EARTH_RADIUS_MILES;
+
+    private VectorDistanceKernel() { }
+
+    static void equirectangular(double originLat, double originLng, float[] lats, float[] lngs, float[] miles) {
+        float lat0 = (float) originLat;
+        float lng0 = (float) originLng;
+        float cosOrigin = (float) Math.cos(Math.toRadians(originLat));
+        float halfSinOrigin = (float) Math.sin(Math.toRadians(originLat)) / 2;
+        int bound = SPECIES.loopBound(lats.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector dLat = FloatVector.fromArray(SPECIES, lats, i).sub(lat0).mul(DEG_TO_RAD);
+            FloatVector dLng = FloatVector.fromArray(SPECIES, lngs, i).sub(lng0).mul(DEG_TO_RAD);
+            FloatVector x = dLng.mul(dLat.mul(-halfSinOrigin).add(cosOrigin));
+            x.mul(x).add(dLat.mul(dLat)).sqrt().mul(RADIUS).intoArray(miles, i);
+        }
+        DistanceKernel.equirectangular(originLat, originLng, lats, lngs, miles, i);
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks ranking a whole dataset by the weighted composite score, keeping the top 10.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeightedScoreBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private RestaurantStore rows;
+
+    @Setup
+    public void setUp() {
+        rows = RestaurantStore.of(SyntheticRestaurants.generate(size, 42));
+    }
+
+    @Benchmark
+    public int[] topTen() {
+        return WeightedScore.BALANCED.top(rows, 10);
+    }
+}
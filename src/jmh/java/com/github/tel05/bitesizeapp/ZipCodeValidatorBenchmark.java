@@ -0,0 +1,48 @@
+package com.github.tel05.bitesizeapp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks ZIP code validation on a dataset with one ZIP per restaurant:
+ * mostly 5-digit ZIPs, some ZIP+4 codes and some malformed input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZipCodeValidatorBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private String[] zipcodes;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        zipcodes = new String[size];
+        for (int i = 0; i < size; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 7) zipcodes[i] = String.format("%05d", random.nextInt(100_000));
+            else if (kind < 9) zipcodes[i] = String.format("%05d-%04d", random.nextInt(100_000), random.nextInt(10_000));
+            else zipcodes[i] = "6064" + (char) ('a' + random.nextInt(26));
+        }
+    }
+
+    private String next() {
+        int i = cursor;
+        cursor = i + 1 < zipcodes.length ? i + 1 : 0;
+        return zipcodes[i];
+    }
+
+    @Benchmark
+    public boolean isValidZipCode() {
+        return ZipCodeValidator.isValidZipCode(next());
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.tel05.bitesizeapp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class stores a column of addresses dictionary-encoded. Most addresses of a region end with one
+ * of a few localities ("Chicago, IL 60647"), so each address is split into its street part, kept as
+ * UTF-8 bytes in one shared array, and a locality id into a dictionary holding each locality once.
+ * An address is rebuilt as a String only when {@link #get} is called, e.g. to display a row.
+ * <p>
+ * The locality is the part after the second to last ", " (city and "ST ZIP"), or after the last one
+ * when there is only one. Addresses are rebuilt exactly as they were added.
+ */
+public class AddressColumn {
+    private static final String SEPARATOR = ", ";
+    private static final int NO_LOCALITY = -1;
+
+    private int size;
+    private byte[] streets; // street parts, one after another
+    private int streetBytes;
+    private int[] streetEnds; // end of each row's street in streets
+    private int[] localities; // locality id of each row, or NO_LOCALITY
+
+    private final HashMap<String, Integer> localityIds = new HashMap<>();
+    private final List<String> localityNames = new ArrayList<>();
+
+    /** Creates an empty column. */
+    public AddressColumn() {
+        this(16);
+    }
+
+    /** Creates an empty column with room for the given number of addresses before it has to grow. */
+    public AddressColumn(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Capacity cannot be negative.");
+        int capacity = Math.max(1, initialCapacity);
+        // about 16 bytes per street part
+        streets = new byte[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(256, 16L * capacity))];
+        streetEnds = new int[capacity];
+        localities = new int[capacity];
+    }
+
+    /**
+     * Adds an address at the end of the column.
+     * @return the row of the address
+     */
+    public int add(String address) {
+        if (size == streetEnds.length) {
+            streetEnds = Arrays.copyOf(streetEnds, size * 2);
+            localities = Arrays.copyOf(localities, size * 2);
+        }
+        int split = localityStart(address);
+        int locality = NO_LOCALITY;
+        int streetLength = address.length();
+        if (split >= 0) {
+            locality = localityIds.computeIfAbsent(address.substring(split), name -> {
+                localityNames.add(name);
+                return localityNames.size() - 1;
+            });
+            streetLength = split - SEPARATOR.length();
+        }
+        putStreet(address, streetLength);
+        streetEnds[size] = streetBytes;
+        localities[size] = locality;
+        return size++;
+    }
+
+    /**
+     * Adds the address of a row of another column at the end of this one, copying its encoded
+     * street bytes instead of rebuilding the address.
+     * @return the row of the address
+     */
+    public int add(AddressColumn from, int row) {
+        if (size == streetEnds.length) {
+            streetEnds = Arrays.copyOf(streetEnds, size * 2);
+            localities = Arrays.copyOf(localities, size * 2);
+        }
+        int start = row == 0 ? 0 : from.streetEnds[row - 1];
+        int length = from.streetEnds[row] - start;
+        if (streetBytes + length > streets.length) {
+            streets = Arrays.copyOf(streets, Math.max(2 * streets.length, streetBytes + length));
+        }
+        System.arraycopy(from.streets, start, streets, streetBytes, length);
+        streetBytes += length;
+        int locality = from.localities[row];
+        if (locality != NO_LOCALITY) {
+            locality = localityIds.computeIfAbsent(from.localityNames.get(locality), name -> {
+                localityNames.add(name);
+                return localityNames.size() - 1;
+            });
+        }
+        streetEnds[size] = streetBytes;
+        localities[size] = locality;
+        return size++;
+    }
+
+    /** Rebuilds the address of a row. */
+    public String get(int row) {
+        int start = row == 0 ? 0 : streetEnds[row - 1];
+        String street = new String(streets, start, streetEnds[row] - start, StandardCharsets.UTF_8);
+        return localities[row] == NO_LOCALITY ? street : street + SEPARATOR + localityNames.get(localities[row]);
+    }
+
+    /** Returns the number of addresses. */
+    public int size() { return size; }
+
+    /** Returns the number of distinct localities. */
+    public int localityCount() { return localityNames.size(); }
+
+    // Index where the locality starts, or -1 if the address has no ", "
+    private static int localityStart(String address) {
+        int last = address.lastIndexOf(SEPARATOR);
+        if (last < 0) return -1;
+        int previous = last == 0 ? -1 : address.lastIndexOf(SEPARATOR, last - 1);
+        return (previous >= 0 ? previous : last) + SEPARATOR.length();
+    }
+
+    // Appends the first length chars of s to the street bytes as UTF-8
+    private void putStreet(String s, int length) {
+        // UTF-8 takes at most 3 bytes per char
+        if (streetBytes + 3L * length > streets.length) {
+            streets = Arrays.copyOf(streets, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(2L * streets.length, streetBytes + 3L * length)));
+        }
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                // not ASCII: let the JDK encode the street
+                byte[] encoded = s.substring(0, length).getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(encoded, 0, streets, streetBytes, encoded.length);
+                streetBytes += encoded.length;
+                return;
+            }
+            streets[streetBytes + i] = (byte) c;
+        }
+        streetBytes += length;
+    }
+}
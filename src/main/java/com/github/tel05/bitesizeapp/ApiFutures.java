@@ -0,0 +1,42 @@
+package com.github.tel05.bitesizeapp;
+
+import com.google.maps.PendingResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class adapts the Google client's {@link PendingResult} to a {@link CompletableFuture}.
+ * The request is sent with {@link PendingResult#setCallback}, so no thread waits while it is in
+ * flight; the future is completed from the client's callback with the response, or exceptionally
+ * with the failure the client reports (an {@code ApiException} subclass, an {@code IOException}, ...).
+ * Cancelling the future cancels the request.
+ */
+public class ApiFutures {
+
+    /**
+     * Sends a request and returns a future of its response.
+     * @param request the pending request, which must not have been sent yet
+     * @return a future completed when the response or the failure arrives
+     */
+    public static <T> CompletableFuture<T> of(PendingResult<T> request) {
+        CompletableFuture<T> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                request.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        request.setCallback(new PendingResult.Callback<>() {
+            @Override
+            public void onResult(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
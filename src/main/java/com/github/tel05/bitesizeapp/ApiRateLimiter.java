@@ -0,0 +1,208 @@
+package com.github.tel05.bitesizeapp;
+
+import com.google.maps.PendingResult;
+import com.google.maps.errors.OverQueryLimitException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * This class keeps Google API calls within a per-API quota, shared by every caller.
+ * Each API (geocode, nearby search, place details) has its own token bucket, kept as a single
+ * {@link AtomicLong} (the time at which the bucket is next empty) and updated with compare-and-set,
+ * so taking a token never locks. A request that finds no token is not blocked: it is scheduled to
+ * be sent when its token becomes available.
+ * <p>
+ * When Google still answers OVER_QUERY_LIMIT, the request is retried with jittered exponential
+ * backoff, and the whole API's bucket is paused for that backoff, so other callers slow down too
+ * instead of producing more quota errors. For this to take effect, the GeoApiContext should not
+ * retry {@link OverQueryLimitException} itself (see {@code setIfExceptionIsAllowedToRetry}).
+ * <p>
+ * {@link #stats} reports the current queue depth (requests waiting for a token) and how long
+ * requests have waited for tokens in total. The latency and failure of every call are recorded in {@link Metrics}.
+ */
+public class ApiRateLimiter {
+
+    /** The Google APIs with separate budgets. */
+    public enum Api { GEOCODE, NEARBY, DETAILS }
+
+    // Default budgets in queries per second; set them to your project's quotas
+    public static final double DEFAULT_GEOCODE_QPS = 50;
+    public static final double DEFAULT_NEARBY_QPS = 10;
+    public static final double DEFAULT_DETAILS_QPS = 50;
+    public static final int DEFAULT_MAX_RETRIES = 5;
+    // Backoff after the n-th quota error is between half and all of min(BASE << n, MAX)
+    private static final long BASE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(32);
+
+    /**
+     * Counters of one API.
+     * @param queueDepth requests currently waiting for a token
+     * @param requests requests submitted, including retries
+     * @param throttled requests that had to wait for a token
+     * @param throttleWaitNanos total time requests waited for a token
+     * @param quotaErrors OVER_QUERY_LIMIT responses received
+     * @param retries requests resent after a quota error
+     */
+    public record Stats(int queueDepth, long requests, long throttled, long throttleWaitNanos,
+                        long quotaErrors, long retries) { }
+
+    private final Map<Api, Bucket> buckets = new EnumMap<>(Api.class);
+    private final int maxRetries;
+
+    /** Creates a limiter with the default budgets. */
+    public ApiRateLimiter() {
+        this(DEFAULT_GEOCODE_QPS, DEFAULT_NEARBY_QPS, DEFAULT_DETAILS_QPS, DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * Creates a limiter with the given budgets. Each API may burst up to one second's worth of requests.
+     *
+     * @param geocodeQps Geocoding API queries per second
+     * @param nearbyQps nearby search queries per second
+     * @param detailsQps place details queries per second
+     * @param maxRetries how many times a request is resent after a quota error
+     * @throws IllegalArgumentException if a budget is not positive or maxRetries is negative
+     */
+    public ApiRateLimiter(double geocodeQps, double nearbyQps, double detailsQps, int maxRetries) {
+        if (maxRetries < 0) throw new IllegalArgumentException("Max retries cannot be negative.");
+        this.maxRetries = maxRetries;
+        buckets.put(Api.GEOCODE, new Bucket(Api.GEOCODE, geocodeQps));
+        buckets.put(Api.NEARBY, new Bucket(Api.NEARBY, nearbyQps));
+        buckets.put(Api.DETAILS, new Bucket(Api.DETAILS, detailsQps));
+    }
+
+    private ApiRateLimiter(int maxRetries) {
+        this.maxRetries = maxRetries;
+        for (Api api : Api.values()) buckets.put(api, new Bucket(api, Double.POSITIVE_INFINITY));
+    }
+
+    /** Returns a limiter that sends every request right away and never retries. */
+    public static ApiRateLimiter unlimited() {
+        return new ApiRateLimiter(0);
+    }
+
+    /**
+     * Sends a request when the API's budget allows it, retrying after quota errors.
+     *
+     * @param api the API the request belongs to
+     * @param request creates the request; called again for every retry, since a request can only be sent once
+     * @return a future of the response; it fails with the client's exception, or with the last
+     *         {@link OverQueryLimitException} once the retries are used up
+     */
+    public <T> CompletableFuture<T> submit(Api api, Supplier<PendingResult<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        schedule(buckets.get(api), request, 0, result);
+        return result;
+    }
+
+    /** Returns the counters of an API. */
+    public Stats stats(Api api) {
+        Bucket bucket = buckets.get(api);
+        return new Stats(bucket.queued.get(), bucket.requests.sum(), bucket.throttled.sum(),
+                bucket.waitNanos.sum(), bucket.quotaErrors.sum(), bucket.retries.sum());
+    }
+
+    private <T> void schedule(Bucket bucket, Supplier<PendingResult<T>> request, int attempt, CompletableFuture<T> result) {
+        bucket.requests.increment();
+        long wait = bucket.reserve(System.nanoTime());
+        if (wait == 0) {
+            send(bucket, request, attempt, result);
+            return;
+        }
+        bucket.throttled.increment();
+        bucket.waitNanos.add(wait);
+        bucket.queued.incrementAndGet();
+        CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> {
+            bucket.queued.decrementAndGet();
+            send(bucket, request, attempt, result);
+        });
+    }
+
+    private <T> void send(Bucket bucket, Supplier<PendingResult<T>> request, int attempt, CompletableFuture<T> result) {
+        if (result.isDone()) return; // cancelled while waiting for a token
+        CompletableFuture<T> response;
+        long start = System.nanoTime();
+        try {
+            response = ApiFutures.of(request.get());
+        } catch (RuntimeException e) {
+            Metrics.recordError(bucket.api, System.nanoTime() - start, e);
+            result.completeExceptionally(e);
+            return;
+        }
+        response.whenComplete((value, failure) -> {
+            if (failure == null) {
+                Metrics.recordCall(bucket.api, System.nanoTime() - start);
+                result.complete(value);
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            Metrics.recordError(bucket.api, System.nanoTime() - start, cause);
+            if (cause instanceof OverQueryLimitException) {
+                bucket.quotaErrors.increment();
+                if (attempt < maxRetries) {
+                    bucket.retries.increment();
+                    bucket.pause(System.nanoTime(), backoffNanos(attempt));
+                    schedule(bucket, request, attempt + 1, result);
+                    return;
+                }
+            }
+            result.completeExceptionally(cause);
+        });
+    }
+
+    // Equal jitter: at least half the exponential delay, so retries always back off,
+    // plus a random part so callers that failed together don't retry together
+    private static long backoffNanos(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_NANOS, BASE_BACKOFF_NANOS << Math.min(attempt, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    // Token bucket in its "virtual scheduling" form: nextFree is the time at which the bucket
+    // would be empty again, and a request may go once it is at most `tolerance` in the future.
+    private static final class Bucket {
+        final Api api;
+        final long interval;   // nanos per token, 0 when unlimited
+        final long tolerance;  // burst allowance in nanos
+        final AtomicLong nextFree = new AtomicLong(System.nanoTime());
+        final AtomicInteger queued = new AtomicInteger();
+        final LongAdder requests = new LongAdder();
+        final LongAdder throttled = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder quotaErrors = new LongAdder();
+        final LongAdder retries = new LongAdder();
+
+        Bucket(Api api, double qps) {
+            this.api = api;
+            if (!(qps > 0)) throw new IllegalArgumentException("Queries per second has to be positive.");
+            interval = Double.isInfinite(qps) ? 0 : Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / qps));
+            long burst = Math.max(1, (long) qps);
+            tolerance = interval * (burst - 1);
+        }
+
+        // Takes the next token and returns how many nanos to wait before using it
+        long reserve(long now) {
+            if (interval == 0) return 0;
+            while (true) {
+                long free = nextFree.get();
+                long start = Math.max(free, now);
+                if (nextFree.compareAndSet(free, start + interval)) {
+                    return Math.max(0, start - tolerance - now);
+                }
+            }
+        }
+
+        // Holds every request of this API back for the given time
+        void pause(long now, long nanos) {
+            nextFree.accumulateAndGet(now + nanos + tolerance, Math::max);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.tel05.bitesizeapp;
+
+/**
+ * This class computes the distance from one origin to many points in a single pass,
+ * filling a {@code float[]} of miles (e.g. from the latitude and longitude columns of a {@link RestaurantStore}).
+ * {@link SearchService} uses it for the distance from the location searched to each candidate.
+ * <p>
+ * The origin's cosine and sine of latitude are computed once per batch. A Vector API version of the
+ * equirectangular loop is benchmarked against this one in the JMH sources (it needs the incubating
+ * {@code jdk.incubator.vector} module, so it isn't part of the app).
+ * <p>
+ * Two formulas are offered:
+ * <ul>
+ *   <li>{@link Mode#HAVERSINE}: the great-circle distance, same formula as {@code NearbyRestaurants.calculateDistance}.</li>
+ *   <li>{@link Mode#EQUIRECTANGULAR}: a flat-earth approximation with no trigonometry per point, for short
+ *       ranges such as the 5 km search radius. Within 5 km it stays within 0.1% of the haversine distance.
+ *       It does not handle points on the other side of the antimeridian.</li>
+ * </ul>
+ */
+public class DistanceKernel {
+    // Radius of Earth in miles, same as NearbyRestaurants
+    static final double EARTH_RADIUS_MILES = 3958;
+
+    /** The distance formulas. */
+    public enum Mode { HAVERSINE, EQUIRECTANGULAR }
+
+    /**
+     * Computes the distance from the origin to every point.
+     *
+     * @param originLat latitude of the origin
+     * @param originLng longitude of the origin
+     * @param lats latitude of each point
+     * @param lngs longitude of each point
+     * @param miles receives the distance to each point in miles (NaN for a point without a location)
+     * @param mode the formula to use
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public static void distances(double originLat, double originLng, float[] lats, float[] lngs, float[] miles, Mode mode) {
+        if (lats.length != lngs.length || lats.length != miles.length) {
+            throw new IllegalArgumentException("Latitude, longitude and distance arrays must have the same length.");
+        }
+        if (mode == Mode.HAVERSINE) haversine(originLat, originLng, lats, lngs, miles, 0);
+        else equirectangular(originLat, originLng, lats, lngs, miles, 0);
+    }
+
+    // Scalar loops, starting at the given index (the benchmarked vector kernel uses them for the tail)
+
+    static void haversine(double originLat, double originLng, float[] lats, float[] lngs, float[] miles, int from) {
+        double cosOrigin = Math.cos(Math.toRadians(originLat));
+        for (int i = from; i < lats.length; i++) {
+            double sinLat = Math.sin(Math.toRadians(lats[i] - originLat) / 2);
+            double sinLng = Math.sin(Math.toRadians(lngs[i] - originLng) / 2);
+            double a = sinLat * sinLat + cosOrigin * Math.cos(Math.toRadians(lats[i])) * sinLng * sinLng;
+            miles[i] = (float) (2 * EARTH_RADIUS_MILES * Math.asin(Math.sqrt(Math.min(1, a))));
+        }
+    }
+
+    // x uses the cosine at the midpoint latitude, from cos(a - b) = cos a cos b + sin a sin b
+    // with cos b ~ 1 and sin b ~ b for the small half-difference b, so no trigonometry per point
+    static void equirectangular(double originLat, double originLng, float[] lats, float[] lngs, float[] miles, int from) {
+        double cosOrigin = Math.cos(Math.toRadians(originLat));
+        double sinOrigin = Math.sin(Math.toRadians(originLat));
+        for (int i = from; i < lats.length; i++) {
+            double dLat = Math.toRadians(lats[i] - originLat);
+            double dLng = Math.toRadians(lngs[i] - originLng);
+            double x = dLng * (cosOrigin - sinOrigin * dLat / 2);
+            miles[i] = (float) (EARTH_RADIUS_MILES * Math.sqrt(x * x + dLat * dLat));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.tel05.bitesizeapp;
+
+/**
+ * This class encodes coordinates as geohash strings.
+ * A geohash names a rectangular cell of the map; every extra character narrows the cell
+ * (precision 5 is about 4.9 x 4.9 km, precision 6 about 1.2 x 0.6 km, precision 7 about 150 x 150 m).
+ * Coordinates that share a geohash fall in the same cell.
+ */
+public class GeoHash {
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    public static final int MAX_PRECISION = 12;
+
+    /**
+     * Returns the geohash of the cell containing the given coordinates.
+     *
+     * @param latitude the latitude (-90 to 90)
+     * @param longitude the longitude (-180 to 180)
+     * @param precision the number of characters (1 - 12)
+     * @return the geohash string
+     * @throws IllegalArgumentException if any input value is out of range
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (latitude < -90 || latitude > 90) throw new IllegalArgumentException("Latitude has to be within range: -90 - 90");
+        if (longitude < -180 || longitude > 180) throw new IllegalArgumentException("Longitude has to be within range: -180 - 180");
+        if (precision < 1 || precision > MAX_PRECISION) throw new IllegalArgumentException("Precision has to be within range: 1 - " + MAX_PRECISION);
+
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        char[] hash = new char[precision];
+        boolean evenBit = true; // bits alternate between longitude and latitude, starting with longitude
+        for (int i = 0; i < precision; i++) {
+            int index = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                index <<= 1;
+                if (evenBit) {
+                    double mid = (minLng + maxLng) / 2;
+                    if (longitude >= mid) { index |= 1; minLng = mid; } else { maxLng = mid; }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (latitude >= mid) { index |= 1; minLat = mid; } else { maxLat = mid; }
+                }
+                evenBit = !evenBit;
+            }
+            hash[i] = BASE32[index];
+        }
+        return new String(hash);
+    }
+}
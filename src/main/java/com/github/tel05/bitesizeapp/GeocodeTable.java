@@ -0,0 +1,69 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the result of a batch geocode ({@link Geocoding#geocodeAll}).
+ * Each distinct ZIP code is one row, and the rows are sorted by ZIP key
+ * ({@link ZipCodeValidator#toKey}), so a ZIP code is found by binary search.
+ * Coordinates are stored in primitive arrays instead of a {@code double[]} per ZIP code;
+ * a ZIP code that could not be resolved has NaN coordinates.
+ */
+public class GeocodeTable {
+    private final int[] keys;      // sorted ascending, no duplicates
+    private final double[] lats;   // NaN when the ZIP code was not resolved
+    private final double[] lngs;
+    private final int rejected;    // inputs that were not valid ZIP codes
+
+    GeocodeTable(int[] keys, double[] lats, double[] lngs, int rejected) {
+        this.keys = keys;
+        this.lats = lats;
+        this.lngs = lngs;
+        this.rejected = rejected;
+    }
+
+    /** Returns the number of distinct valid ZIP codes in the batch. */
+    public int size() { return keys.length; }
+
+    /** Returns the number of inputs dropped because they were not valid ZIP codes. */
+    public int rejectedCount() { return rejected; }
+
+    /** Returns the number of ZIP codes that were resolved to coordinates. */
+    public int resolvedCount() {
+        int resolved = 0;
+        for (double lat : lats) {
+            if (!Double.isNaN(lat)) resolved++;
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns the row of a ZIP code.
+     * @param zipcode the ZIP code (5 digits or 5+4 format)
+     * @return the row, or -1 if the ZIP code is not in the table
+     */
+    public int indexOf(String zipcode) {
+        int key = ZipCodeValidator.toKey(zipcode);
+        if (key < 0) return -1;
+        int row = Arrays.binarySearch(keys, key);
+        return row < 0 ? -1 : row;
+    }
+
+    // Getter methods for each field of a row
+    public String zipCode(int row) { return format(keys[check(row)]); }
+    public double latitude(int row) { return lats[check(row)]; }
+    public double longitude(int row) { return lngs[check(row)]; }
+    public boolean isResolved(int row) { return !Double.isNaN(lats[check(row)]); }
+
+    // Turns a ZIP key back into the ZIP code it was made from
+    static String format(int key) {
+        if (key < 100_000) return String.format("%05d", key);
+        int zip4 = key - 100_000;
+        return String.format("%05d-%04d", zip4 / 10_000, zip4 % 10_000);
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= keys.length) throw new IndexOutOfBoundsException("No ZIP code row " + row);
+        return row;
+    }
+}
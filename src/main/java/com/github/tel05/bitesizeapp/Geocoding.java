@@ -2,34 +2,219 @@ package com.github.tel05.bitesizeapp;
 
 import com.google.maps.GeoApiContext;
 import com.google.maps.GeocodingApi;
-import com.google.maps.model.GeocodingResult;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 public class Geocoding {
 
-    private GeoApiContext context;
+    // Default number of Geocoding API requests a batch keeps in flight at once
+    public static final int DEFAULT_BATCH_PARALLELISM = 8;
+
+    private final Supplier<GeoApiContext> context;
+    private final ZipCodeCache cache; // optional, null when caching is off
+    private final ZipCentroidIndex centroids; // optional, null when offline lookup is off
+    private final ApiRateLimiter limiter;
+    // Concurrent lookups of the same ZIP code share one API call
+    private final SingleFlight<String, double[]> flights = new SingleFlight<>();
 
     // Constructor that accepts the GeoApiContext
     public Geocoding(GeoApiContext context) {
+        this(context, null, null);
+    }
+
+    // Constructor that accepts the GeoApiContext and a ZIP code cache checked before every API call
+    public Geocoding(GeoApiContext context, ZipCodeCache cache) {
+        this(context, cache, null);
+    }
+
+    // Constructor that also accepts an offline ZIP centroid index, checked before the cache
+    public Geocoding(GeoApiContext context, ZipCodeCache cache, ZipCentroidIndex centroids) {
+        this(context, cache, centroids, ApiRateLimiter.unlimited());
+    }
+
+    // Constructor that also accepts the rate limiter shared by every Google API call
+    public Geocoding(GeoApiContext context, ZipCodeCache cache, ZipCentroidIndex centroids, ApiRateLimiter limiter) {
+        this(() -> context, cache, centroids, limiter);
+    }
+
+    // Constructor that gets the GeoApiContext only when an API call needs it (see LazyGeoApiContext)
+    public Geocoding(Supplier<GeoApiContext> context, ZipCodeCache cache, ZipCentroidIndex centroids, ApiRateLimiter limiter) {
         this.context = context;
+        this.cache = cache;
+        this.centroids = centroids;
+        this.limiter = limiter;
     }
 
     // Method to get latitude and longitude by zipcode
     public double[] getLatLongByZipCode(String zipcode) {
+        double[] local = lookupLocal(zipcode);
+        if (local != null) return local;
+        return fetch(zipcode);
+    }
+
+    /**
+     * Gets the latitude and longitude of a ZIP code without blocking a thread while the
+     * Geocoding API request is in flight. Local sources are checked first, as in
+     * {@link #getLatLongByZipCode}.
+     *
+     * @param zipcode the ZIP code to geocode
+     * @return a future of {latitude, longitude}; it fails with a {@link ZipCodeNotFoundException}
+     *         if the API has no result, or with the client's exception if the request fails
+     */
+    public CompletableFuture<double[]> getLatLongByZipCodeAsync(String zipcode) {
+        double[] local = lookupLocal(zipcode);
+        if (local != null) return CompletableFuture.completedFuture(local);
+        return flights.run(zipcode, () -> limiter.submit(ApiRateLimiter.Api.GEOCODE, () -> GeocodingApi.geocode(context.get(), zipcode))
+                .thenApply(results -> {
+                    // If results are found, return the first result's latitude and longitude
+                    if (results == null || results.length == 0) {
+                        throw new CompletionException(new ZipCodeNotFoundException(zipcode));
+                    }
+                    double lat = results[0].geometry.location.lat;
+                    double lng = results[0].geometry.location.lng;
+                    if (cache != null) cache.put(zipcode, lat, lng);
+                    return new double[]{lat, lng};
+                }))
+                // every caller gets its own array
+                .thenApply(double[]::clone);
+    }
+
+    /** Returns how many Geocoding API calls were saved by joining an identical call in flight. */
+    public long savedCallCount() {
+        return flights.savedCalls();
+    }
+
+    /**
+     * Geocodes a batch of ZIP codes with at most {@link #DEFAULT_BATCH_PARALLELISM} requests in flight.
+     * @see #geocodeAll(Collection, int)
+     */
+    public GeocodeTable geocodeAll(Collection<String> zipcodes) {
+        return geocodeAll(zipcodes, DEFAULT_BATCH_PARALLELISM);
+    }
+
+    /**
+     * Geocodes a batch of ZIP codes. Inputs are trimmed, invalid ones are dropped and duplicates
+     * are looked up once. ZIP codes known to the centroid index or the cache are served locally;
+     * the rest are sent to the Geocoding API concurrently (one virtual thread each), with at most
+     * {@code parallelism} requests in flight at once.
+     *
+     * @param zipcodes the ZIP codes to geocode (5 digits or 5+4 format)
+     * @param parallelism maximum number of Geocoding API requests in flight at once
+     * @return one row per distinct valid ZIP code; ZIP codes that could not be resolved have NaN coordinates
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public GeocodeTable geocodeAll(Collection<String> zipcodes, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1.");
+
+        // Normalize to ZIP keys, then sort and drop duplicates
+        int[] keys = new int[zipcodes.size()];
+        int n = 0;
+        int rejected = 0;
+        for (String zipcode : zipcodes) {
+            int key = ZipCodeValidator.toKey(zipcode == null ? null : zipcode.strip());
+            if (key < 0) rejected++;
+            else keys[n++] = key;
+        }
+        Arrays.sort(keys, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || keys[i] != keys[unique - 1]) keys[unique++] = keys[i];
+        }
+        keys = Arrays.copyOf(keys, unique);
+        double[] lats = new double[unique];
+        double[] lngs = new double[unique];
+        Arrays.fill(lats, Double.NaN);
+        Arrays.fill(lngs, Double.NaN);
+
+        // Serve what we can locally and remember the rows that need an API call
+        int[] misses = new int[unique];
+        int missCount = 0;
+        for (int row = 0; row < unique; row++) {
+            double[] local = lookupLocal(GeocodeTable.format(keys[row]));
+            if (local != null) {
+                lats[row] = local[0];
+                lngs[row] = local[1];
+            } else {
+                misses[missCount++] = row;
+            }
+        }
+
+        // Fetch the rest in parallel, with the semaphore capping how many requests are in flight
+        if (missCount > 0) {
+            Semaphore permits = new Semaphore(parallelism);
+            List<Future<double[]>> results = new ArrayList<>(missCount);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int m = 0; m < missCount; m++) {
+                    String zipcode = GeocodeTable.format(keys[misses[m]]);
+                    results.add(executor.submit(() -> {
+                        permits.acquire();
+                        try {
+                            return fetch(zipcode);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                for (int m = 0; m < missCount; m++) {
+                    double[] result = results.get(m).get();
+                    if (result != null) {
+                        lats[misses[m]] = result[0];
+                        lngs[misses[m]] = result[1];
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Stop waiting and keep whatever was resolved so far
+                Thread.currentThread().interrupt();
+                System.out.println("Batch geocoding was interrupted.");
+            } catch (ExecutionException e) {
+                System.out.println("Error retrieving geocoding information: " + e.getCause());
+            }
+        }
+        return new GeocodeTable(keys, lats, lngs, rejected);
+    }
+
+    // Looks a ZIP code up in the offline sources, returns null if neither knows it
+    private double[] lookupLocal(String zipcode) {
+        // Known ZIP codes resolve to their centroid offline
+        if (centroids != null) {
+            double[] centroid = centroids.lookup(zipcode);
+            if (centroid != null) return centroid;
+        }
+        // Serve repeated ZIP codes from the cache without a network call
+        if (cache != null) {
+            double[] cached = cache.get(zipcode);
+            if (cached != null) return cached;
+        }
+        return null;
+    }
+
+    // Calls the Geocoding API for a ZIP code and caches the result, returns null if it can't be resolved
+    private double[] fetch(String zipcode) {
         try {
-            // Perform Geocoding API request to retrieve address info
-            GeocodingResult[] results = GeocodingApi.geocode(context, zipcode).await();
-
-            // If results are found, return the first result's latitude and longitude
-            if (results != null && results.length > 0) {
-                double lat = results[0].geometry.location.lat;
-                double lng = results[0].geometry.location.lng;
-                return new double[]{lat, lng};
+            return getLatLongByZipCodeAsync(zipcode).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Interrupted while retrieving geocoding information.");
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ZipCodeNotFoundException notFound) {
+                System.out.println(notFound.getMessage());
             } else {
-                System.out.println("No results found for zipcode: " + zipcode);
-                return null;
+                System.out.println("Error retrieving geocoding information: " + e.getCause().getMessage());
             }
-        } catch (Exception e) {
+            return null;
+        } catch (RuntimeException e) {
             System.out.println("Error retrieving geocoding information: " + e.getMessage());
             return null;
         }
@@ -0,0 +1,90 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a fixed-bucket histogram of non-negative long values (e.g. latencies in nanoseconds),
+ * safe to record into from many threads at once.
+ * <p>
+ * Buckets are log-linear: every power of two is split into 8 equal buckets, so a percentile is
+ * reported within 12.5% of the true value. Each bucket is a {@link LongAdder}, so recording is a
+ * couple of shifts and one striped increment, with no locking and no allocation.
+ */
+public class Histogram {
+    private static final int SUB_BITS = 3;                  // 8 buckets per power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) counts[i] = new LongAdder();
+    }
+
+    /** Records a value; negative values are recorded as 0. */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[bucket(value)].increment();
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /** Returns the number of values recorded. */
+    public long count() { return total.sum(); }
+
+    /** Returns the largest value recorded, 0 if none. */
+    public long max() { return max.get(); }
+
+    /** Returns the mean of the values recorded, 0 if none. */
+    public double mean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns an estimate of the given percentile: the upper bound of the bucket holding it
+     * (but never more than the largest value recorded).
+     *
+     * @param percentile between 0 and 100
+     * @return the estimate, 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile has to be within range: 0 - 100");
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            n += snapshot[i];
+        }
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    // Values below 8 get a bucket each; above that, the top bit picks the power of two
+    // and the next 3 bits pick one of its 8 buckets
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int power = 63 - Long.numberOfLeadingZeros(value);
+        int shift = power - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // Largest value that falls in the bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
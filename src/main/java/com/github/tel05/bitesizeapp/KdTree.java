@@ -0,0 +1,292 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.Arrays;
+
+/**
+ *  The {@code KdTree} class is a spatial index over points on the Earth's surface.
+ *  It answers <em>k-nearest</em> and <em>within-radius</em> queries without looking at every point.
+ *  <p>
+ *  Each point is stored as a unit vector (x, y, z) and the tree is a balanced 3-d tree over those
+ *  vectors. The straight-line (chord) distance between two unit vectors grows with the great-circle
+ *  distance between the points, so ranking by chord distance gives exactly the same order as the
+ *  haversine distance, with no projection error anywhere on the globe.
+ *  <p>
+ *  The tree is implicit: the points are reordered so that the median of every range is the node
+ *  splitting it, and no node objects are allocated. Construction takes time proportional to
+ *  n log n; a query visits roughly log n + k nodes on clustered data.
+ *  <p>
+ *  Points are identified by their position in the arrays the tree was built from.
+ *  Ties in distance are broken by the lower position.
+ */
+public class KdTree {
+    // Radius of Earth in miles, same as the haversine distance in NearbyRestaurants
+    private static final double EARTH_RADIUS_MILES = 3958;
+
+    private final int n;
+    private final int[] point;   // point[i] is the original position of the i-th node in tree order
+    private final double[] x;    // unit vector of the i-th node in tree order
+    private final double[] y;
+    private final double[] z;
+    private final byte[] axis;   // splitting axis of the i-th node (0 = x, 1 = y, 2 = z)
+
+    /**
+     * Builds a tree over the given coordinates.
+     *
+     * @param latitudes latitude of each point
+     * @param longitudes longitude of each point
+     * @throws IllegalArgumentException if the arrays have different lengths or a coordinate is NaN
+     */
+    public KdTree(double[] latitudes, double[] longitudes) {
+        this(latitudes.length, longitudes.length);
+        for (int i = 0; i < n; i++) setPoint(i, latitudes[i], longitudes[i]);
+        build(0, n);
+    }
+
+    /**
+     * Builds a tree over coordinates stored as floats, such as the columns of a {@link RestaurantStore}.
+     *
+     * @param latitudes latitude of each point
+     * @param longitudes longitude of each point
+     * @throws IllegalArgumentException if the arrays have different lengths or a coordinate is NaN
+     */
+    public KdTree(float[] latitudes, float[] longitudes) {
+        this(latitudes.length, longitudes.length);
+        for (int i = 0; i < n; i++) setPoint(i, latitudes[i], longitudes[i]);
+        build(0, n);
+    }
+
+    private KdTree(int latitudeCount, int longitudeCount) {
+        if (latitudeCount != longitudeCount) throw new IllegalArgumentException("Latitude and longitude arrays must have the same length.");
+        n = latitudeCount;
+        point = new int[n];
+        x = new double[n];
+        y = new double[n];
+        z = new double[n];
+        axis = new byte[n];
+    }
+
+    private void setPoint(int i, double latitude, double longitude) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) throw new IllegalArgumentException("Point " + i + " has no location.");
+        double lat = Math.toRadians(latitude);
+        double lng = Math.toRadians(longitude);
+        point[i] = i;
+        x[i] = Math.cos(lat) * Math.cos(lng);
+        y[i] = Math.cos(lat) * Math.sin(lng);
+        z[i] = Math.sin(lat);
+    }
+
+    /** Returns the number of points in the tree. */
+    public int size() { return n; }
+
+    /**
+     * Returns the k points nearest to the given location, nearest first.
+     *
+     * @param latitude latitude of the query location
+     * @param longitude longitude of the query location
+     * @param k maximum number of points to return
+     * @return positions of the nearest points (fewer than k if the tree is smaller)
+     */
+    public int[] nearest(double latitude, double longitude, int k) {
+        if (k < 0) throw new IllegalArgumentException("k cannot be negative.");
+        Query q = new Query(latitude, longitude, Math.min(k, n));
+        if (q.capacity > 0) nearest(q, 0, n);
+        return q.drain();
+    }
+
+    /**
+     * Returns every point within the given great-circle distance of a location, nearest first.
+     *
+     * @param latitude latitude of the query location
+     * @param longitude longitude of the query location
+     * @param miles search radius in miles
+     * @return positions of the points within the radius
+     */
+    public int[] withinRadius(double latitude, double longitude, double miles) {
+        if (miles < 0) throw new IllegalArgumentException("Radius cannot be negative.");
+        double chord = 2 * Math.sin(Math.min(miles / EARTH_RADIUS_MILES, Math.PI) / 2);
+        Query q = new Query(latitude, longitude, n);
+        q.bound = chord * chord;
+        if (n > 0) within(q, 0, n);
+        return q.drain();
+    }
+
+    /* *********************************************************************
+     * Construction: place the median of every range at its midpoint.
+     **********************************************************************/
+
+    private void build(int lo, int hi) {
+        if (hi - lo <= 0) return;
+        int mid = (lo + hi) >>> 1;
+        byte a = widestAxis(lo, hi);
+        select(lo, hi - 1, mid, a);
+        axis[mid] = a;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    // splitting on the axis with the largest spread keeps cells compact for clustered data
+    private byte widestAxis(int lo, int hi) {
+        double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        double minZ = Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int i = lo; i < hi; i++) {
+            minX = Math.min(minX, x[i]); maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]); maxY = Math.max(maxY, y[i]);
+            minZ = Math.min(minZ, z[i]); maxZ = Math.max(maxZ, z[i]);
+        }
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        if (dx >= dy && dx >= dz) return 0;
+        return dy >= dz ? (byte) 1 : (byte) 2;
+    }
+
+    // quickselect: puts the node of rank k (by the given axis) at index k,
+    // with smaller ones before it and larger ones after it
+    private void select(int lo, int hi, int k, byte a) {
+        while (hi > lo) {
+            int i = lo, j = hi;
+            double pivot = coord((lo + hi) >>> 1, a);
+            while (i <= j) {
+                while (coord(i, a) < pivot) i++;
+                while (coord(j, a) > pivot) j--;
+                if (i <= j) exch(i++, j--);
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private double coord(int i, byte a) {
+        return a == 0 ? x[i] : a == 1 ? y[i] : z[i];
+    }
+
+    private void exch(int i, int j) {
+        int p = point[i]; point[i] = point[j]; point[j] = p;
+        double t = x[i]; x[i] = x[j]; x[j] = t;
+        t = y[i]; y[i] = y[j]; y[j] = t;
+        t = z[i]; z[i] = z[j]; z[j] = t;
+    }
+
+    /* *********************************************************************
+     * Queries.
+     **********************************************************************/
+
+    private void nearest(Query q, int lo, int hi) {
+        if (hi - lo <= 0) return;
+        int mid = (lo + hi) >>> 1;
+        q.offer(mid);
+        double diff = q.coord(axis[mid]) - coord(mid, axis[mid]);
+        // search the side containing the query first, then the other side only if it can be closer
+        if (diff < 0) {
+            nearest(q, lo, mid);
+            if (diff * diff <= q.bound()) nearest(q, mid + 1, hi);
+        } else {
+            nearest(q, mid + 1, hi);
+            if (diff * diff <= q.bound()) nearest(q, lo, mid);
+        }
+    }
+
+    private void within(Query q, int lo, int hi) {
+        if (hi - lo <= 0) return;
+        int mid = (lo + hi) >>> 1;
+        if (q.distance(mid) <= q.bound) q.add(mid);
+        double diff = q.coord(axis[mid]) - coord(mid, axis[mid]);
+        if (diff < 0 || diff * diff <= q.bound) within(q, lo, mid);
+        if (diff >= 0 || diff * diff <= q.bound) within(q, mid + 1, hi);
+    }
+
+    // State of one query: the query vector plus a max-heap of the best nodes found so far,
+    // ordered by (squared chord distance, original position)
+    private final class Query {
+        final double qx, qy, qz;
+        final int capacity;
+        double[] dist;
+        int[] node;
+        int size;
+        double bound = Double.MAX_VALUE; // fixed bound for radius queries
+
+        Query(double latitude, double longitude, int capacity) {
+            double lat = Math.toRadians(latitude);
+            double lng = Math.toRadians(longitude);
+            qx = Math.cos(lat) * Math.cos(lng);
+            qy = Math.cos(lat) * Math.sin(lng);
+            qz = Math.sin(lat);
+            this.capacity = capacity;
+            // radius queries can match any number of points, so their heap grows as needed
+            dist = new double[Math.min(capacity, 16)];
+            node = new int[dist.length];
+        }
+
+        double coord(byte a) {
+            return a == 0 ? qx : a == 1 ? qy : qz;
+        }
+
+        double distance(int i) {
+            double dx = x[i] - qx, dy = y[i] - qy, dz = z[i] - qz;
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        // worst distance still worth visiting for k-nearest
+        double bound() {
+            return size < capacity ? Double.MAX_VALUE : dist[0];
+        }
+
+        // keeps node i if it is among the k best seen so far
+        void offer(int i) {
+            double d = distance(i);
+            if (size < capacity) {
+                add(d, i);
+            } else if (less(d, i, dist[0], node[0])) {
+                dist[0] = d;
+                node[0] = i;
+                sink(0);
+            }
+        }
+
+        void add(int i) { add(distance(i), i); }
+
+        private void add(double d, int i) {
+            if (size == dist.length) {
+                dist = Arrays.copyOf(dist, size * 2);
+                node = Arrays.copyOf(node, size * 2);
+            }
+            int k = size++;
+            dist[k] = d;
+            node[k] = i;
+            while (k > 0 && less(dist[(k - 1) / 2], node[(k - 1) / 2], dist[k], node[k])) {
+                swap(k, (k - 1) / 2);
+                k = (k - 1) / 2;
+            }
+        }
+
+        private void sink(int k) {
+            while (2 * k + 1 < size) {
+                int j = 2 * k + 1;
+                if (j + 1 < size && less(dist[j], node[j], dist[j + 1], node[j + 1])) j++;
+                if (!less(dist[k], node[k], dist[j], node[j])) break;
+                swap(k, j);
+                k = j;
+            }
+        }
+
+        private boolean less(double d1, int i1, double d2, int i2) {
+            return d1 < d2 || (d1 == d2 && point[i1] < point[i2]);
+        }
+
+        private void swap(int i, int j) {
+            double d = dist[i]; dist[i] = dist[j]; dist[j] = d;
+            int t = node[i]; node[i] = node[j]; node[j] = t;
+        }
+
+        // removes the heap contents, nearest first, as original positions
+        int[] drain() {
+            int[] result = new int[size];
+            for (int r = size - 1; r >= 0; r--) {
+                result[r] = point[node[0]];
+                swap(0, --size);
+                sink(0);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.tel05.bitesizeapp;
+
+import com.google.maps.GeoApiContext;
+
+import java.util.function.Supplier;
+
+/**
+ * This class builds the {@link GeoApiContext} the first time a Google API call needs it.
+ * <p>
+ * Building the context loads the Google client, OkHttp, Kotlin and Gson, and starts the client's
+ * threads. A session that only exits, enters invalid ZIP codes or finds its ZIP code offline never
+ * makes an API call, so with this holder it never pays that cost either.
+ * <p>
+ * {@link #get} is thread-safe and builds the context at most once.
+ */
+public class LazyGeoApiContext implements Supplier<GeoApiContext> {
+    private final Supplier<GeoApiContext> factory;
+    private volatile GeoApiContext context;
+
+    /**
+     * Creates a holder that builds the context with the given factory on first use.
+     * @param factory builds the context, e.g. {@code () -> new GeoApiContext.Builder().apiKey(key).build()}
+     */
+    public LazyGeoApiContext(Supplier<GeoApiContext> factory) {
+        this.factory = factory;
+    }
+
+    /** Returns the context, building it if this is the first call. */
+    @Override
+    public GeoApiContext get() {
+        GeoApiContext result = context;
+        if (result == null) {
+            synchronized (this) {
+                result = context;
+                if (result == null) context = result = factory.get();
+            }
+        }
+        return result;
+    }
+
+    /** Checks whether the context has been built. */
+    public boolean isCreated() {
+        return context != null;
+    }
+
+    /** Shuts the context down if it was built; does nothing otherwise. */
+    public synchronized void shutdown() {
+        if (context != null) context.shutdown();
+    }
+}
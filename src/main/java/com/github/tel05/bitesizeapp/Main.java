@@ -1,17 +1,21 @@
 package com.github.tel05.bitesizeapp;
 
+import java.io.IOException;
 import java.util.*;
 
-import static com.github.tel05.bitesizeapp.RestaurantData.getData;
-
 import com.google.maps.GeoApiContext;
-import com.google.maps.GeocodingApi;
-import com.google.maps.model.GeocodingResult;
+import com.google.maps.errors.OverQueryLimitException;
 
 public class Main {
     private static final Scanner scanner = new Scanner(System.in);
     private static final String API_KEY = System.getenv("GOOGLE_API_KEY");
 
+    // Ordering of each sort option (index 0 is unused, options start at 1). The holder class is
+    // initialized the first time results are displayed, so the ranking classes aren't loaded before
+    private static final class Orderings {
+        static final RankedView.Ordering[] BY_OPTION = {null, RankedView.By.DISTANCE, RankedView.By.RATING,
+                RankedView.By.PRICE_LEVEL, WeightedScore.BALANCED};
+    }
 
 
     /**
@@ -53,9 +57,9 @@ public class Main {
 
     /**
      * Displays sorting options to the user and retrieves their choice.
-     * Options include sorting by distance, rating, or price level.
+     * Options include sorting by distance, rating, price level, or a blend of the three.
      *
-     * @return The chosen sorting option as an integer (1 for distance, 2 for rating, 3 for price level).
+     * @return The chosen sorting option as an integer (1 for distance, 2 for rating, 3 for price level, 4 for best match).
      */
     public static int filter() {
         int filter = 0;
@@ -66,43 +70,42 @@ public class Main {
             System.out.println("1. Distance");
             System.out.println("2. Rating");
             System.out.println("3. Price level");
+            System.out.println("4. Best match (distance, rating and price)");
 
             // Check if input is a valid integer
             if (scanner.hasNextInt()) {
                 filter = scanner.nextInt();
                 // Validate range
-                if (filter < 1 || filter > 3) {
-                    System.out.println("Not a valid option. Enter a number between 1 and 3.");
+                if (filter < 1 || filter > 4) {
+                    System.out.println("Not a valid option. Enter a number between 1 and 4.");
                 }
             } else {
-                System.out.println("Not a valid option. Enter a number between 1 and 3.");
+                System.out.println("Not a valid option. Enter a number between 1 and 4.");
                 scanner.next(); // Clear invalid input
             }
         }
-        while (filter < 1 || filter > 3);
+        while (filter < 1 || filter > 4);
         return filter;
 
     }
 
     /**
-     * Displays the sorted restaurant results based on the chosen filter (distance, rating, or price level).
+     * Displays the sorted restaurant results based on the chosen filter (distance, rating, price level, or best match).
      * @param filter Sorting filter chosen by the user.
-     * @param distancePQ List of restaurants sorted by distance.
-     * @param ratingPQ List of restaurants sorted by rating.
-     * @param pricePQ List of restaurants sorted by price level.
+     * @param sortedList Row handles of the restaurants in the filter's order.
      * @param numOptions Number of results to display.
-     * @param restaurantMap Map of restaurant IDs to Restaurant objects.
+     * @param rows Store of the restaurants, indexed by row handle.
      */
-    public static void displayResults(int filter, List<String> distancePQ, List<String> ratingPQ, List<String> pricePQ, int numOptions, Map<String, Restaurant> restaurantMap) {
-        List<String> sortedList = filter == 1 ? distancePQ : filter == 2 ? ratingPQ : pricePQ;
-        for (int i = 1; i <= numOptions; i++) {
-            String id = sortedList.get(i - 1);
-            Restaurant restaurant = restaurantMap.get(id);
-            System.out.printf("%d. %s \n", i, restaurant.getName());
+    public static void displayResults(int filter, int[] sortedList, int numOptions, RestaurantStore rows) {
+        for (int i = 1; i <= numOptions && i <= sortedList.length; i++) {
+            int row = sortedList[i - 1];
+            System.out.printf("%d. %s \n", i, rows.name(row));
             switch (filter) {
-                case 1 -> System.out.printf("Distance: %.2f mi\n", restaurant.getDistance());
-                case 2 -> System.out.printf("Rating: %.1f\n", restaurant.getRating());
-                case 3 -> System.out.printf("Price: %d\n", restaurant.getPriceLevel());
+                case 1 -> System.out.printf("Distance: %.2f mi\n", rows.distance(row));
+                case 2 -> System.out.printf("Rating: %.1f\n", rows.rating(row));
+                case 3 -> System.out.printf("Price: %d\n", rows.priceLevel(row));
+                case 4 -> System.out.printf("Distance: %.2f mi, Rating: %.1f, Price: %d\n",
+                        rows.distance(row), rows.rating(row), rows.priceLevel(row));
             }
             System.out.println();
         }
@@ -141,9 +144,22 @@ public class Main {
     public static void main(String[] args) {
 
         boolean exit = false;
-        GeoApiContext context = new GeoApiContext.Builder()
+        // Quota errors are retried by the shared rate limiter (which also slows down the other callers),
+        // so the client itself doesn't retry them.
+        // The context is only built when the first API call needs it, so sessions that never call
+        // the API don't load the Google client at all
+        LazyGeoApiContext context = new LazyGeoApiContext(() -> new GeoApiContext.Builder()
                                 .apiKey(API_KEY)
-                                .build();
+                                .setIfExceptionIsAllowedToRetry(OverQueryLimitException.class, false)
+                                .build());
+        ApiRateLimiter limiter = new ApiRateLimiter();
+        // JMX loads a few hundred classes, so the MBeans are registered off the main thread
+        // while the user types the first ZIP code
+        Thread.ofVirtual().name("metrics").start(Metrics::registerMBeans);
+        // The ZIP code cache, the centroid dataset and the sample data are loaded for the first
+        // valid ZIP code, so the first prompt doesn't wait for them
+        ZipCodeCache zipCache = null;
+        SearchService searchService = null;
 
         while (!exit) {
             printTitle();
@@ -158,9 +174,14 @@ public class Main {
                 continue;  
             }
 
+            if (searchService == null) {
+                zipCache = openZipCache();
+                searchService = new SearchService(new Geocoding(context, zipCache, loadZipCentroids(), limiter),
+                        SearchService.sampleData());
+            }
+
             // request coordinates with valid zip code.
-            Geocoding geocoder = new Geocoding(context);
-            double[] latLong = geocoder.getLatLongByZipCode(zipcode);
+            double[] latLong = searchService.geocode(zipcode);
             // test if zip code was converted to coordinates correctly
             // will not be displayed in final project
             if (latLong != null) {
@@ -169,72 +190,14 @@ public class Main {
                 System.out.println("Could not find coordinates for zipcode " + zipcode);
             }
             // pass coordinates to Places API to get nearby restaurants
-            // method returns a HashMap of Restaurant Objects(stores Restaurant details, unordered)
-            //NearbyRestaurants nb1 = new NearbyRestaurants(context);
-
-            //Map<String, Restaurant> restaurantMap = nb1.getNearbyRestaurants(latLong[0],latLong[1]);
-            
-                    
-            
-            
+            // (the search service uses the sample data until the Places API is integrated)
             int numOptions = numOfResults();
-            // REMOVE THIS after integrating Google Places API vvv
-            // Retrieve restaurant data based on zip code and populate the restaurant map.
-            Restaurant[] restaurantsList = getData();
-            HashMap<String, Restaurant> restaurantMap = new HashMap<>();
-            for (Restaurant restaurant : restaurantsList) {
-                 restaurantMap.put(restaurant.getId(), restaurant);
-             }
-            // REMOVE THIS ^^^^
-
-            // create MinPQ for distance (max 10 items) ----------------------------------------------------------------------------------------
-            // Priority Queues for sorting by distance, price level, and rating
-            Comparator<String> distanceComparator = Comparator.comparing((String id)-> restaurantMap.get(id).getDistance())
-                    .thenComparing(id -> restaurantMap.get(id).getId());
-            MinPQ<String> distanceMinPQ = new MinPQ<>(distanceComparator);
-
-
-            for (String id : restaurantMap.keySet()) {
-                distanceMinPQ.insert(id);
-            }
-
-            // Build List subset of nearest restaurants to build priceLevel and rating PQs
-            List<String> distancePQ = new ArrayList<>();
-            for (int i = 0; i < numOptions && !distanceMinPQ.isEmpty(); i++) {
-                distancePQ.add(distanceMinPQ.delMin());
-            }
-
-            // MinPQ for price level ----------------------------------------------------------------------------------------
-            Comparator<String> priceComparator = Comparator.comparing((String id) -> restaurantMap.get(id).getPriceLevel())
-                    .thenComparing(id -> restaurantMap.get(id).getId());
-            MinPQ<String> priceMinPQ = new MinPQ<>(priceComparator);
-            for (String id : distancePQ) {
-                priceMinPQ.insert(id);
-            }
-
-            List<String> pricePQ = new ArrayList<>();
-            while (!priceMinPQ.isEmpty()) {
-                Restaurant rest = restaurantMap.get(priceMinPQ.delMin());
-                pricePQ.add(rest.getId());
-            }
-
-            // MaxPQ for rating ----------------------------------------------------------------------------------------
-            Comparator<String> ratingComparator = Comparator.comparing((String id) -> restaurantMap.get(id).getRating())
-                    .thenComparing(id -> restaurantMap.get(id).getId());
-            MaxPQ<String> ratingMaxPQ = new MaxPQ<>(ratingComparator);
-            for (String id : distancePQ) {
-                ratingMaxPQ.insert(id);
-            }
-
-            List<String> ratingPQ = new ArrayList<>();
-
-            while (!ratingMaxPQ.isEmpty()) {
-                Restaurant rest = restaurantMap.get(ratingMaxPQ.delMax());
-                ratingPQ.add(rest.getId());
-            }
+            SearchService.Result result = searchService.search(zipcode, latLong, numOptions);
+            RestaurantStore rows = result.rows();
+            // Each sort option is ranked the first time the user picks it, then reused
+            RankedView view = result.view();
 
-
-            String[] choices = new String[]{"empty", "distance in miles (low to high)", "rating (high to low) \nrange: 1-5", "price level (low to high) \n0:inexpensive to 4:expensive "};
+            String[] choices = new String[]{"empty", "distance in miles (low to high)", "rating (high to low) \nrange: 1-5", "price level (low to high) \n0:inexpensive to 4:expensive ", "best match (close, highly rated and inexpensive first)"};
             int restaurantNum;
             // Print restaurants by sorting option
             while (true) {
@@ -245,7 +208,8 @@ public class Main {
                     System.out.println("----------------------------------------------------------");
                     System.out.printf("Sorted by %s\n", choices[filter]);
                     System.out.println();
-                    displayResults(filter, distancePQ, ratingPQ, pricePQ, numOptions, restaurantMap);
+                    int[] sortedList = view.get(Orderings.BY_OPTION[filter]);
+                    displayResults(filter, sortedList, numOptions, rows);
 
                     System.out.println();
                     System.out.println("Enter number of the restaurant to view details.");
@@ -260,20 +224,9 @@ public class Main {
                     if (restaurantNum == numOptions + 1 || restaurantNum == 0)  break;
                     while (true) {
                         int input;
-                        // Display restaurant details depending on filter
+                        // Display restaurant details in the order of the filter
                         System.out.println("----------------------------------------------------------");
-                        // Distance
-                        if (filter == 1) {
-                            System.out.println(restaurantMap.get(distancePQ.get(restaurantNum - 1)));
-                        }
-                        // Rating
-                        else if (filter == 2) {
-                            System.out.println(restaurantMap.get(ratingPQ.get(restaurantNum - 1)));
-                        }
-                        // Price level
-                        else if (filter == 3) {
-                            System.out.println(restaurantMap.get(pricePQ.get(restaurantNum - 1)));
-                        }
+                        System.out.println(rows.restaurant(sortedList[restaurantNum - 1]));
                         System.out.println("Press '0' to go back to restaurant list: ");
                         if (scanner.hasNextInt()) {
                             input = scanner.nextInt();
@@ -289,6 +242,50 @@ public class Main {
             }
         }
         scanner.close();
+        closeZipCache(zipCache);
         context.shutdown();
     }
+
+    /**
+     * Opens the on-disk ZIP code cache and registers its MBean (off the main thread).
+     * @return the cache, or null if it could not be opened (geocoding then always calls the API).
+     */
+    private static ZipCodeCache openZipCache() {
+        try {
+            // ZIP code coordinates are cached on disk between sessions
+            ZipCodeCache zipCache = ZipCodeCache.open(ZipCodeCache.DEFAULT_FILE, ZipCodeCache.DEFAULT_TTL);
+            Thread.ofVirtual().name("metrics").start(() ->
+                    Metrics.registerCache("zipcodes", zipCache::hitCount, zipCache::missCount, zipCache::size));
+            return zipCache;
+        } catch (IOException e) {
+            System.out.println("Could not open zip code cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Loads the offline ZIP centroid dataset.
+     * @return the index, or null if it could not be loaded (geocoding then uses the cache and API only).
+     */
+    private static ZipCentroidIndex loadZipCentroids() {
+        try {
+            return ZipCentroidIndex.loadDefault();
+        } catch (IOException e) {
+            System.out.println("Could not load zip code centroids: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Flushes and closes the ZIP code cache, if one was opened.
+     * @param zipCache the cache to close, may be null.
+     */
+    private static void closeZipCache(ZipCodeCache zipCache) {
+        if (zipCache == null) return;
+        try {
+            zipCache.close();
+        } catch (IOException e) {
+            System.out.println("Could not save zip code cache: " + e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -3,7 +3,9 @@ package com.github.tel05.bitesizeapp;
 // Exercise 2.4.15 (Solution published at http://algs4.cs.princeton.edu/)
 //package algs24;
 //import stdlib.*;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 /* ***********************************************************************
@@ -43,6 +45,7 @@ public class MaxPQ<K extends Comparable<? super K>> implements Iterable<K> {
     private K[] pq; // store items at indices 1 to N
     private int N;  // number of items on priority queue
     private Comparator<? super K> comparator;  // optional Comparator
+    private int modCount;                      // number of insert/delete operations, for fail-fast iterators
 
     // helper function to double the size of the heap array
     @SuppressWarnings("unchecked")
@@ -104,6 +107,7 @@ public class MaxPQ<K extends Comparable<? super K>> implements Iterable<K> {
         // add x, and percolate it up to maintain heap invariant
         pq[++N] = x;
         swim(N);
+        modCount++;
         //assert isMaxHeap();
     }
 
@@ -116,6 +120,7 @@ public class MaxPQ<K extends Comparable<? super K>> implements Iterable<K> {
         exch(1, N);
         N = N - 1;
         sink(1);
+        modCount++;
         K max = pq[N+1];
         pq[N+1] = null; // avoid loitering and help with garbage collection
         if ((N > 0) && (N == (pq.length - 1) / 4)) resize(pq.length / 2);
@@ -185,34 +190,95 @@ public class MaxPQ<K extends Comparable<? super K>> implements Iterable<K> {
 
     /**
      * Return an iterator that iterates over all of the keys on the priority queue
-     * in descending order.
+     * in descending order, without copying the heap.
      * <p>
+     * It keeps a small frontier heap of positions in the heap array: the next key is
+     * always the best key of the frontier, and taking it adds its two children.
+     * Iterating over the first k keys therefore takes time proportional to k log k
+     * and memory proportional to k, however many keys are on the priority queue.
+     * <p>
+     * The iterator fails fast with a {@code ConcurrentModificationException} if the
+     * priority queue is modified while iterating.
      * The iterator doesn't implement {@code remove()} since it's optional.
      */
     public Iterator<K> iterator() { return new HeapIterator(); }
 
+    /**
+     * Return a view of the keys in heap order (no particular order) for bulk scans.
+     * Nothing is copied; iterators of the view fail fast with a
+     * {@code ConcurrentModificationException} if the priority queue is modified while iterating.
+     */
+    public Iterable<K> unordered() { return UnorderedIterator::new; }
+
     private class HeapIterator implements Iterator<K> {
-        // create a new pq
-        private MaxPQ<K> copy;
+        private final int expectedModCount = modCount;
+        private int[] frontier = new int[8]; // positions in pq, as a binary heap using 1-based indexing
+        private int size;                    // number of positions on the frontier
 
-        // add all items to copy of heap
-        // takes linear time since already in heap order so no keys move
         public HeapIterator() {
-            if (comparator == null) copy = new MaxPQ<K>(size());
-            else                    copy = new MaxPQ<K>(size(), comparator);
-            for (int i = 1; i <= N; i++)
-                copy.insert(pq[i]);
+            if (N > 0) push(1);
+        }
+
+        public boolean hasNext()  { return size > 0;                            }
+        public void remove()      { throw new UnsupportedOperationException();  }
+
+        public K next() {
+            checkForComodification(expectedModCount);
+            if (!hasNext()) throw new NoSuchElementException();
+            int top = frontier[1];
+            frontier[1] = frontier[size--];
+            sink();
+            if (2*top <= N)     push(2*top);
+            if (2*top + 1 <= N) push(2*top + 1);
+            return pq[top];
         }
 
-        public boolean hasNext()  { return !copy.isEmpty();                     }
+        private void push(int position) {
+            if (size + 1 == frontier.length) frontier = Arrays.copyOf(frontier, 2 * frontier.length);
+            frontier[++size] = position;
+            int k = size;
+            while (k > 1 && less(frontier[k/2], frontier[k])) {
+                exch(k, k/2);
+                k = k/2;
+            }
+        }
+
+        private void sink() {
+            int k = 1;
+            while (2*k <= size) {
+                int j = 2*k;
+                if (j < size && less(frontier[j], frontier[j+1])) j++;
+                if (!less(frontier[k], frontier[j])) break;
+                exch(k, j);
+                k = j;
+            }
+        }
+
+        private void exch(int i, int j) {
+            int swap = frontier[i];
+            frontier[i] = frontier[j];
+            frontier[j] = swap;
+        }
+    }
+
+    private class UnorderedIterator implements Iterator<K> {
+        private final int expectedModCount = modCount;
+        private int next = 1;
+
+        public boolean hasNext()  { return next <= N;                           }
         public void remove()      { throw new UnsupportedOperationException();  }
 
         public K next() {
+            checkForComodification(expectedModCount);
             if (!hasNext()) throw new NoSuchElementException();
-            return copy.delMax();
+            return pq[next++];
         }
     }
 
+    private void checkForComodification(int expectedModCount) {
+        if (modCount != expectedModCount) throw new ConcurrentModificationException();
+    }
+
 //    void showHeap() {
 //        for (int i = 1; i <= N; i++)
 //            StdOut.print (pq[i] + " ");
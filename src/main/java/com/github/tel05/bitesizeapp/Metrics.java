@@ -0,0 +1,170 @@
+package com.github.tel05.bitesizeapp;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * This class collects the app's operational metrics and publishes them as MBeans
+ * under the {@code com.github.tel05.bitesizeapp} domain (visible in JConsole or any JMX client):
+ * <ul>
+ *   <li>{@code type=Api,name=GEOCODE|NEARBY|DETAILS}: call latency percentiles and errors by exception type,
+ *       recorded for every Google API call by {@link ApiRateLimiter}.</li>
+ *   <li>{@code type=Ranking}: candidates and ranking time per search, and operations on the ranking heaps.</li>
+ *   <li>{@code type=Cache,name=...}: hits, misses and size of the caches passed to {@link #registerCache}.</li>
+ * </ul>
+ * Recording goes to {@link Histogram}s and {@link LongAdder}s, so it is lock-free and allocates nothing
+ * (except the first time an error type is seen).
+ */
+public class Metrics {
+    private static final String DOMAIN = "com.github.tel05.bitesizeapp";
+
+    private static final Map<ApiRateLimiter.Api, ApiStats> API = new EnumMap<>(ApiRateLimiter.Api.class);
+    static {
+        for (ApiRateLimiter.Api api : ApiRateLimiter.Api.values()) API.put(api, new ApiStats());
+    }
+
+    /** Number of candidate restaurants per search. */
+    public static final Histogram SEARCH_CANDIDATES = new Histogram();
+    /** Time spent ranking, in nanoseconds: nearest selection per search and each ordering computed. */
+    public static final Histogram RANKING_NANOS = new Histogram();
+    /** Inserts and deletes on the k-sized heaps of {@link Ranking} and {@link WeightedScore}. */
+    public static final LongAdder HEAP_OPERATIONS = new LongAdder();
+
+    private static final class ApiStats {
+        final Histogram latency = new Histogram();
+        final ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    }
+
+    /** Records a successful API call. */
+    public static void recordCall(ApiRateLimiter.Api api, long nanos) {
+        API.get(api).latency.record(nanos);
+    }
+
+    /** Records a failed API call, counted by the failure's exception type. */
+    public static void recordError(ApiRateLimiter.Api api, long nanos, Throwable failure) {
+        ApiStats stats = API.get(api);
+        stats.latency.record(nanos);
+        stats.errors.computeIfAbsent(failure.getClass().getSimpleName(), type -> new LongAdder()).increment();
+    }
+
+    /** Records one search: how many candidates it ranked and how long selecting the nearest took. */
+    public static void recordSearch(int candidates, long rankingNanos) {
+        SEARCH_CANDIDATES.record(candidates);
+        RANKING_NANOS.record(rankingNanos);
+    }
+
+    /* *********************************************************************
+     * MBeans.
+     **********************************************************************/
+
+    /** Latency and errors of one Google API. */
+    public interface ApiMXBean {
+        long getCallCount();
+        long getErrorCount();
+        Map<String, Long> getErrorsByType();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP95Millis();
+        double getP99Millis();
+        double getMaxMillis();
+    }
+
+    /** Ranking cost. */
+    public interface RankingMXBean {
+        long getSearchCount();
+        double getMeanCandidates();
+        long getP50Candidates();
+        long getP99Candidates();
+        long getMaxCandidates();
+        double getP50RankingMillis();
+        double getP99RankingMillis();
+        double getMaxRankingMillis();
+        long getHeapOperations();
+    }
+
+    /** Efficiency of a cache. */
+    public interface CacheMXBean {
+        long getHitCount();
+        long getMissCount();
+        double getHitRatio();
+        long getSize();
+    }
+
+    /**
+     * Registers the API and ranking MBeans with the platform MBean server.
+     * Calling it again has no effect.
+     */
+    public static void registerMBeans() {
+        for (ApiRateLimiter.Api api : ApiRateLimiter.Api.values()) {
+            ApiStats stats = API.get(api);
+            register("type=Api,name=" + api, ApiMXBean.class, new ApiMXBean() {
+                public long getCallCount() { return stats.latency.count(); }
+                public long getErrorCount() {
+                    long errors = 0;
+                    for (LongAdder count : stats.errors.values()) errors += count.sum();
+                    return errors;
+                }
+                public Map<String, Long> getErrorsByType() {
+                    Map<String, Long> errors = new TreeMap<>();
+                    stats.errors.forEach((type, count) -> errors.put(type, count.sum()));
+                    return errors;
+                }
+                public double getMeanMillis() { return stats.latency.mean() / TimeUnit.MILLISECONDS.toNanos(1); }
+                public double getP50Millis() { return millis(stats.latency.percentile(50)); }
+                public double getP95Millis() { return millis(stats.latency.percentile(95)); }
+                public double getP99Millis() { return millis(stats.latency.percentile(99)); }
+                public double getMaxMillis() { return millis(stats.latency.max()); }
+            });
+        }
+        register("type=Ranking", RankingMXBean.class, new RankingMXBean() {
+            public long getSearchCount() { return SEARCH_CANDIDATES.count(); }
+            public double getMeanCandidates() { return SEARCH_CANDIDATES.mean(); }
+            public long getP50Candidates() { return SEARCH_CANDIDATES.percentile(50); }
+            public long getP99Candidates() { return SEARCH_CANDIDATES.percentile(99); }
+            public long getMaxCandidates() { return SEARCH_CANDIDATES.max(); }
+            public double getP50RankingMillis() { return millis(RANKING_NANOS.percentile(50)); }
+            public double getP99RankingMillis() { return millis(RANKING_NANOS.percentile(99)); }
+            public double getMaxRankingMillis() { return millis(RANKING_NANOS.max()); }
+            public long getHeapOperations() { return HEAP_OPERATIONS.sum(); }
+        });
+    }
+
+    /** Registers a cache's MBean, e.g. {@code registerCache("zipcodes", cache::hitCount, cache::missCount, cache::size)}. */
+    public static void registerCache(String name, LongSupplier hits, LongSupplier misses, LongSupplier size) {
+        register("type=Cache,name=" + name, CacheMXBean.class, new CacheMXBean() {
+            public long getHitCount() { return hits.getAsLong(); }
+            public long getMissCount() { return misses.getAsLong(); }
+            public double getHitRatio() {
+                long h = hits.getAsLong(), total = h + misses.getAsLong();
+                return total == 0 ? 0 : (double) h / total;
+            }
+            public long getSize() { return size.getAsLong(); }
+        });
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static <T> void register(String properties, Class<T> type, T bean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new StandardMBean(bean, type, true), new ObjectName(DOMAIN + ":" + properties));
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered
+        } catch (JMException e) {
+            System.out.println("Could not register metrics " + properties + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.tel05.bitesizeapp;
+
+import com.google.maps.model.PlaceDetails;
+import com.google.maps.model.PlacesSearchResponse;
+import com.google.maps.model.PlacesSearchResult;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ *  The {@code NearbyRestaurantStream} class streams the results of a nearby search one restaurant at a time,
+ *  in the order the details responses arrive, instead of waiting for every request to finish.
+ *  Callers can start ranking (e.g. with {@link TopK}) as soon as the first restaurant arrives.
+ *  <p>
+ *  Further result pages (the search's {@code nextPageToken}) are only followed while the caller keeps
+ *  consuming: a page is requested once the caller has taken a restaurant after the previous page arrived,
+ *  so a caller that stops early never pays for pages it doesn't read. Details requests are sent on the
+ *  caller's thread as it consumes, with at most {@code maxConcurrentDetails} in flight at once; responses
+ *  are handed over through a queue by the client's callbacks, so no other thread waits.
+ *  <p>
+ *  Places that can't be a restaurant (e.g. with no rating yet) are skipped, like in a nearby search.
+ *  A failed request ends the stream: {@link #hasNext()} throws a {@link CompletionException} whose
+ *  cause is the client's exception. Close the stream to cancel the requests still in flight.
+ *  Streamed results are not added to the nearby search cache, since a stream may stop early.
+ */
+public class NearbyRestaurantStream implements Iterator<Restaurant>, AutoCloseable {
+    // A next page token only becomes valid a short time after the page carrying it was returned
+    public static final long NEXT_PAGE_DELAY_MILLIS = 2000;
+
+    private final double latitude;
+    private final double longitude;
+    private final int maxConcurrentDetails;
+    private final Function<String, CompletableFuture<PlacesSearchResponse>> nextPage;
+    private final Function<String, CompletableFuture<PlaceDetails>> details;
+    private final long nextPageDelayMillis;
+
+    // Responses and failures, in arrival order, filled by the client callbacks
+    private final BlockingQueue<Object> arrivals = new LinkedBlockingQueue<>();
+    private final Set<CompletableFuture<?>> inFlight = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    private final ArrayDeque<PlacesSearchResult> toFetch = new ArrayDeque<>();
+    private int pending;              // requests sent whose arrival has not been taken yet
+    private int detailsInFlight;
+    private String pageToken;         // token of the next page, null when there is none
+    private long pageArrivedAt;       // nanoTime at which the page carrying pageToken arrived
+    private boolean pageRequested;
+    private Restaurant next;
+    private volatile boolean closed;
+
+    // A details response together with the search result it belongs to
+    private record Arrival(PlacesSearchResult result, PlaceDetails details) { }
+
+    NearbyRestaurantStream(double latitude, double longitude, int maxConcurrentDetails,
+                           Supplier<CompletableFuture<PlacesSearchResponse>> firstPage,
+                           Function<String, CompletableFuture<PlacesSearchResponse>> nextPage,
+                           Function<String, CompletableFuture<PlaceDetails>> details,
+                           long nextPageDelayMillis) {
+        if (maxConcurrentDetails < 1) throw new IllegalArgumentException("Max concurrent details requests must be at least 1.");
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.maxConcurrentDetails = maxConcurrentDetails;
+        this.nextPage = nextPage;
+        this.details = details;
+        this.nextPageDelayMillis = nextPageDelayMillis;
+        send(firstPage.get(), page -> page);
+    }
+
+    /**
+     * Returns true if another restaurant is coming, waiting for the next response if needed.
+     * @throws CompletionException if a request failed
+     */
+    @Override
+    public boolean hasNext() {
+        if (closed) return false;
+        while (next == null) {
+            if (pending == 0) {
+                if (pageToken == null) return false;
+                requestNextPage();
+            }
+            Object arrival;
+            try {
+                arrival = arrivals.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new CompletionException(e);
+            }
+            pending--;
+            if (arrival instanceof Throwable failure) {
+                close();
+                throw failure instanceof CompletionException completion ? completion : new CompletionException(failure);
+            } else if (arrival instanceof PlacesSearchResponse page) {
+                pageRequested = false;
+                pageToken = page.nextPageToken;
+                pageArrivedAt = System.nanoTime();
+                if (page.results != null) Collections.addAll(toFetch, page.results);
+            } else {
+                detailsInFlight--;
+                Arrival place = (Arrival) arrival;
+                try {
+                    // places that can't be a restaurant (e.g. no rating yet) are skipped
+                    next = NearbyRestaurants.toRestaurant(latitude, longitude, place.result(), place.details());
+                } catch (RuntimeException failure) {
+                    close();
+                    throw new CompletionException(failure);
+                }
+            }
+            fillDetails();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next restaurant to arrive.
+     * @throws NoSuchElementException if the stream has ended
+     * @throws CompletionException if a request failed
+     */
+    @Override
+    public Restaurant next() {
+        if (!hasNext()) throw new NoSuchElementException("No more nearby restaurants");
+        Restaurant restaurant = next;
+        next = null;
+        // The caller is still consuming, so the next page is worth fetching
+        if (pageToken != null && !pageRequested) requestNextPage();
+        return restaurant;
+    }
+
+    /** Stops the stream and cancels the requests still in flight. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        next = null;
+        toFetch.clear();
+        synchronized (inFlight) {
+            for (CompletableFuture<?> request : inFlight) request.cancel(true);
+            inFlight.clear();
+        }
+    }
+
+    // Sends details requests until the limit is reached or no result is waiting
+    private void fillDetails() {
+        while (detailsInFlight < maxConcurrentDetails && !toFetch.isEmpty()) {
+            PlacesSearchResult result = toFetch.poll();
+            detailsInFlight++;
+            send(details.apply(result.placeId), placeDetails -> new Arrival(result, placeDetails));
+        }
+    }
+
+    private void requestNextPage() {
+        String token = pageToken;
+        pageToken = null;
+        pageRequested = true;
+        long waitMillis = nextPageDelayMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pageArrivedAt);
+        if (waitMillis <= 0) {
+            send(nextPage.apply(token), page -> page);
+        } else {
+            Executor delayed = CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS);
+            send(CompletableFuture.supplyAsync(() -> token, delayed).thenCompose(nextPage), page -> page);
+        }
+    }
+
+    // Tracks a request and queues its response (or failure) when it arrives
+    private <T> void send(CompletableFuture<T> request, Function<T, Object> toArrival) {
+        pending++;
+        inFlight.add(request);
+        request.whenComplete((response, failure) -> {
+            inFlight.remove(request);
+            if (!closed) arrivals.add(failure != null ? failure : toArrival.apply(response));
+        });
+    }
+}
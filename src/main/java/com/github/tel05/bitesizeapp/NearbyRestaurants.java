@@ -4,24 +4,78 @@ import com.google.maps.model.LatLng;
 import com.google.maps.model.PlacesSearchResponse;
 import com.google.maps.model.PlacesSearchResult;
 import com.google.maps.PlacesApi;
-import com.google.maps.errors.ApiException;
 import com.google.maps.model.PlaceDetails;
+import com.google.maps.model.PlaceType;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 public class NearbyRestaurants {
 
+    // Default number of place details requests allowed in flight at once
+    public static final int DEFAULT_MAX_CONCURRENT_DETAILS = 8;
+    // Search within a 5km radius (change as needed)
+    public static final int SEARCH_RADIUS_METERS = 5000;
+    // Only look for restaurants
+    public static final PlaceType SEARCH_TYPE = PlaceType.RESTAURANT;
+    // For now, we're passing a placeholder for priceLevel
+    private static final int PLACEHOLDER_PRICE_LEVEL = 1;
+
     private GeoApiContext context;
+    private final int maxConcurrentDetails;
+    private final NearbySearchCache cache; // optional, null when caching is off
+    private final ApiRateLimiter limiter;
+    // Concurrent searches from the same map cell share one nearby search and its details calls
+    private final SingleFlight<String, Fetched> flights = new SingleFlight<>();
+
+    // Search results together with their details, in result order
+    private record Fetched(PlacesSearchResult[] results, PlaceDetails[] details) { }
 
     public NearbyRestaurants(GeoApiContext context){
+        this(context, DEFAULT_MAX_CONCURRENT_DETAILS);
+    }
+
+    public NearbyRestaurants(GeoApiContext context, int maxConcurrentDetails){
+        this(context, maxConcurrentDetails, null);
+    }
+
+    /**
+     * Creates a NearbyRestaurants client that fetches place details concurrently.
+     *
+     * @param context the shared GeoApiContext
+     * @param maxConcurrentDetails maximum number of place details requests in flight at once
+     * @param cache cache of search results checked before calling the Places API, may be null
+     * @throws IllegalArgumentException if maxConcurrentDetails is less than 1
+     */
+    public NearbyRestaurants(GeoApiContext context, int maxConcurrentDetails, NearbySearchCache cache){
+        this(context, maxConcurrentDetails, cache, ApiRateLimiter.unlimited());
+    }
+
+    /**
+     * Creates a NearbyRestaurants client whose requests go through a shared rate limiter.
+     *
+     * @param context the shared GeoApiContext
+     * @param maxConcurrentDetails maximum number of place details requests in flight at once
+     * @param cache cache of search results checked before calling the Places API, may be null
+     * @param limiter the rate limiter shared by every Google API call
+     * @throws IllegalArgumentException if maxConcurrentDetails is less than 1
+     */
+    public NearbyRestaurants(GeoApiContext context, int maxConcurrentDetails, NearbySearchCache cache, ApiRateLimiter limiter){
+        if(maxConcurrentDetails < 1) throw new IllegalArgumentException("Max concurrent details requests must be at least 1.");
         this.context = context;
+        this.maxConcurrentDetails = maxConcurrentDetails;
+        this.cache = cache;
+        this.limiter = limiter;
     }
     
     // Method to calculate distance between two coordinates (user and restaurant)
-    private float calculateDistance(double lat1, double lng1, double lat2, double lng2) {
+    static float calculateDistance(double lat1, double lng1, double lat2, double lng2) {
         // Haversine formula to calculate the distance (in miles)
         final int R = 3958; // Radius of Earth in miles
         double dLat = Math.toRadians(lat2 - lat1);
@@ -34,60 +88,198 @@ public class NearbyRestaurants {
     }
 
     public Map<String, Restaurant> getNearbyRestaurants(double latitude, double longitude) {
+        RestaurantStore store = getNearbyRestaurantStore(latitude, longitude);
         Map<String, Restaurant> restaurants = new HashMap<>();
-        
-        // Wrapping the code in a try-catch block
+        for (int row = 0; row < store.size(); row++) {
+            restaurants.put(store.id(row), store.restaurant(row));
+        }
+        return restaurants;
+    }
+
+    /**
+     * Finds the restaurants near a location and stores them column by column,
+     * without creating a Restaurant object per result.
+     *
+     * @param latitude latitude of the user
+     * @param longitude longitude of the user
+     * @return the restaurants found, in search order (empty if the search failed)
+     */
+    public RestaurantStore getNearbyRestaurantStore(double latitude, double longitude) {
         try {
-            // Create a LatLng object for the given latitude and longitude
-            LatLng location = new LatLng(latitude, longitude);
-    
-            // Make the Places API request to get nearby places
-            PlacesSearchResponse response = PlacesApi.nearbySearchQuery(context, location)
-                    .radius(5000) // Search within a 5km radius (change as needed)
-                    .type(com.google.maps.model.PlaceType.RESTAURANT) // Only look for restaurants
-                    .await(); // This makes the request and waits for the response
-    
-            // Parse the results and create Restaurant objects
-            for (PlacesSearchResult result : response.results) {
-                // Fetch additional details for each place (like phone number, rating, etc.)
-                PlaceDetails placeDetails = PlacesApi.placeDetails(context, result.placeId).await();
-                
-                // Print the class type of priceLevel to help with debugging
-                if (placeDetails.priceLevel != null) {
-                    System.out.println("PriceLevel type: " + placeDetails.priceLevel.getClass().getName());
-                } else {
-                    System.out.println("PriceLevel is null.");
-                }
-    
-                // Calculate distance from user (this can be done with a method you implement)
-                float distance = calculateDistance(latitude, longitude, placeDetails.geometry.location.lat, placeDetails.geometry.location.lng);
-    
-                // Create a Restaurant object
-                Restaurant restaurant = new Restaurant(
-                        result.placeId,
-                        result.name,
-                        placeDetails.formattedAddress,
-                        placeDetails.formattedPhoneNumber,
-                        distance,
-                        placeDetails.rating,
-                        1 // For now, we're passing a placeholder for priceLevel
-                );
-    
-                // Add the restaurant to the map
-                restaurants.put(restaurant.getId(), restaurant);
-            }
-        } catch (InterruptedException | ApiException | IOException e) {
+            return getNearbyRestaurantStoreAsync(latitude, longitude).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Interrupted while retrieving nearby restaurants.");
+        } catch (ExecutionException e) {
             // Handle exceptions here
-            e.printStackTrace();
+            e.getCause().printStackTrace();
             System.out.println("Error occurred while retrieving nearby restaurants.");
         }
-    
-        return restaurants;
+        return new RestaurantStore();
     }
-    
 
+    /**
+     * Finds the restaurants near a location without blocking a thread while the requests are in flight.
+     * The nearby search is sent first, then the details of every result, with at most
+     * maxConcurrentDetails details requests in flight at once.
+     *
+     * @param latitude latitude of the user
+     * @param longitude longitude of the user
+     * @return a future of the restaurants found, in search order; it fails with the client's
+     *         exception (e.g. an {@code ApiException} subclass or an {@code IOException}) if any request fails
+     */
+    public CompletableFuture<RestaurantStore> getNearbyRestaurantStoreAsync(double latitude, double longitude) {
+        // A search from the same map cell is served from the cache, with distances from this origin
+        if (cache != null) {
+            List<NearbySearchCache.Place> cached = cache.get(latitude, longitude, SEARCH_RADIUS_METERS, SEARCH_TYPE);
+            if (cached != null) {
+                RestaurantStore restaurants = new RestaurantStore(cached.size());
+                for (NearbySearchCache.Place place : cached) {
+                    float distance = calculateDistance(latitude, longitude, place.latitude(), place.longitude());
+                    restaurants.add(place.id(), place.name(), place.address(), place.phoneNumber(),
+                            distance, place.rating(), place.priceLevel(), place.latitude(), place.longitude());
+                }
+                return CompletableFuture.completedFuture(restaurants);
+            }
+        }
 
+        // Create a LatLng object for the given latitude and longitude
+        LatLng location = new LatLng(latitude, longitude);
 
+        // Make the Places API request to get nearby places, then fetch the details of every result.
+        // Searches from the same cell (the same key as the cache) that are in flight at the same time
+        // share those calls; each caller then computes distances from its own origin.
+        String key = cache != null
+                ? cache.cellKey(latitude, longitude, SEARCH_RADIUS_METERS, SEARCH_TYPE)
+                : NearbySearchCache.cellKey(latitude, longitude, NearbySearchCache.DEFAULT_PRECISION, SEARCH_RADIUS_METERS, SEARCH_TYPE);
+        return flights.run(key, () -> limiter.submit(ApiRateLimiter.Api.NEARBY, () -> PlacesApi.nearbySearchQuery(context, location)
+                        .radius(SEARCH_RADIUS_METERS)
+                        .type(SEARCH_TYPE))
+                .thenCompose(response -> fetchDetails(response.results, maxConcurrentDetails,
+                                placeId -> limiter.submit(ApiRateLimiter.Api.DETAILS, () -> PlacesApi.placeDetails(context, placeId)))
+                        .thenApply(details -> new Fetched(response.results, details))))
+                .thenApply(fetched -> toStore(latitude, longitude, fetched.results(), fetched.details()));
+    }
+
+    /** Returns how many nearby searches were saved by joining an identical search in flight. */
+    public long savedCallCount() {
+        return flights.savedCalls();
+    }
+
+    /**
+     * Streams the restaurants near a location as their details arrive, following further
+     * result pages while the caller keeps consuming. See {@link NearbyRestaurantStream}.
+     *
+     * @param latitude latitude of the user
+     * @param longitude longitude of the user
+     * @return the stream of restaurants, which should be closed when the caller stops early
+     */
+    public NearbyRestaurantStream streamNearbyRestaurants(double latitude, double longitude) {
+        LatLng location = new LatLng(latitude, longitude);
+        return new NearbyRestaurantStream(latitude, longitude, maxConcurrentDetails,
+                () -> limiter.submit(ApiRateLimiter.Api.NEARBY, () -> PlacesApi.nearbySearchQuery(context, location)
+                        .radius(SEARCH_RADIUS_METERS)
+                        .type(SEARCH_TYPE)),
+                token -> limiter.submit(ApiRateLimiter.Api.NEARBY, () -> PlacesApi.nearbySearchNextPage(context, token)),
+                placeId -> limiter.submit(ApiRateLimiter.Api.DETAILS, () -> PlacesApi.placeDetails(context, placeId)),
+                NearbyRestaurantStream.NEXT_PAGE_DELAY_MILLIS);
+    }
+
+    // Fetches the details of every result, in result order. Each of the maxConcurrentDetails lanes sends one
+    // request at a time and takes the next result when its response arrives, so no thread waits.
+    // Visible for testing: details sends one request, e.g. through the rate limiter.
+    static CompletableFuture<PlaceDetails[]> fetchDetails(PlacesSearchResult[] results, int maxConcurrentDetails,
+                                                           Function<String, CompletableFuture<PlaceDetails>> details) {
+        PlaceDetails[] fetched = new PlaceDetails[results.length];
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(maxConcurrentDetails, results.length)];
+        for (int lane = 0; lane < lanes.length; lane++) {
+            lanes[lane] = fetchNextDetails(results, fetched, next, details);
+        }
+        return CompletableFuture.allOf(lanes).thenApply(done -> fetched);
+    }
+
+    private static CompletableFuture<Void> fetchNextDetails(PlacesSearchResult[] results, PlaceDetails[] fetched, AtomicInteger next,
+                                                            Function<String, CompletableFuture<PlaceDetails>> details) {
+        int i = next.getAndIncrement();
+        if (i >= results.length) return CompletableFuture.completedFuture(null);
+        return details.apply(results[i].placeId)
+                .thenCompose(placeDetails -> {
+                    fetched[i] = placeDetails;
+                    return fetchNextDetails(results, fetched, next, details);
+                });
+    }
+
+    // Parses the search results and their details into a store (in result order, without the
+    // places addPlace skips) and caches them
+    private RestaurantStore toStore(double latitude, double longitude, PlacesSearchResult[] results, PlaceDetails[] details) {
+        RestaurantStore restaurants = new RestaurantStore(results.length);
+        List<NearbySearchCache.Place> places = new ArrayList<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            PlacesSearchResult result = results[i];
+            PlaceDetails placeDetails = details[i];
+
+            // Print the class type of priceLevel to help with debugging
+            if (placeDetails.priceLevel != null) {
+                System.out.println("PriceLevel type: " + placeDetails.priceLevel.getClass().getName());
+            } else {
+                System.out.println("PriceLevel is null.");
+            }
+
+            // Add a restaurant row (validated like a Restaurant object)
+            int row = addPlace(restaurants, latitude, longitude, result, placeDetails);
+            if (row < 0) continue;
+
+            places.add(new NearbySearchCache.Place(result.placeId, result.name,
+                    placeDetails.formattedAddress, placeDetails.formattedPhoneNumber,
+                    placeDetails.geometry.location.lat, placeDetails.geometry.location.lng,
+                    restaurants.rating(row), restaurants.priceLevel(row)));
+        }
+        // Only complete searches are cached
+        if (cache != null) cache.put(latitude, longitude, SEARCH_RADIUS_METERS, SEARCH_TYPE, places);
+        return restaurants;
+    }
 
+    /**
+     * Adds a search result and its details to a store as a row, with its distance from the user.
+     * Places that can't be a restaurant row, e.g. with no rating yet or no phone number, are skipped.
+     *
+     * @return the handle of the new row, or -1 if the place was skipped
+     */
+    static int addPlace(RestaurantStore restaurants, double latitude, double longitude,
+                        PlacesSearchResult result, PlaceDetails placeDetails) {
+        // Calculate distance from user (this can be done with a method you implement)
+        double placeLat = placeDetails.geometry.location.lat;
+        double placeLng = placeDetails.geometry.location.lng;
+        float distance = calculateDistance(latitude, longitude, placeLat, placeLng);
+        try {
+            // the row is validated like a Restaurant object when it is added
+            return restaurants.add(result.placeId, result.name, placeDetails.formattedAddress,
+                    placeDetails.formattedPhoneNumber, distance, placeDetails.rating, PLACEHOLDER_PRICE_LEVEL,
+                    placeLat, placeLng);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Skipping " + result.name + ": " + e.getMessage());
+            return -1;
+        }
+    }
 
+    /**
+     * Creates a Restaurant from a search result and its details, with its distance from the user,
+     * mapped like {@link #addPlace}. Places that can't be a restaurant are skipped.
+     *
+     * @return the restaurant, or null if the place was skipped
+     */
+    static Restaurant toRestaurant(double latitude, double longitude, PlacesSearchResult result, PlaceDetails placeDetails) {
+        double placeLat = placeDetails.geometry.location.lat;
+        double placeLng = placeDetails.geometry.location.lng;
+        float distance = calculateDistance(latitude, longitude, placeLat, placeLng);
+        try {
+            return new Restaurant(result.placeId, result.name, placeDetails.formattedAddress,
+                    placeDetails.formattedPhoneNumber, distance, placeDetails.rating, PLACEHOLDER_PRICE_LEVEL,
+                    placeLat, placeLng);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Skipping " + result.name + ": " + e.getMessage());
+            return null;
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package com.github.tel05.bitesizeapp;
+
+import com.google.maps.model.PlaceType;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * This class caches nearby search results by map cell, so searches from close-together
+ * locations are served without calling the Places API again.
+ * Results are keyed by the geohash cell of the search origin plus the search radius and place type.
+ * The cache holds a bounded number of cells, evicting the least recently used one when full,
+ * and an entry expires after the given time to live.
+ * <p>
+ * Places are stored with their coordinates (not their distance), so the caller can recompute
+ * distances from the actual origin of each search.
+ */
+public class NearbySearchCache {
+    // Default geohash precision: cells of about 1.2 x 0.6 km
+    public static final int DEFAULT_PRECISION = 6;
+
+    /** A cached place with everything needed to rebuild a Restaurant for a new origin. */
+    public record Place(String id, String name, String address, String phoneNumber,
+                        double latitude, double longitude, float rating, int priceLevel) { }
+
+    private record Key(String cell, int radius, PlaceType type) { }
+
+    private record Entry(long storedAt, List<Place> places) { }
+
+    private final int precision;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache using the default geohash precision.
+     *
+     * @param maxCells maximum number of cells kept before the least recently used is evicted
+     * @param ttl how long a cell's results are served before they must be fetched again
+     */
+    public NearbySearchCache(int maxCells, Duration ttl) {
+        this(maxCells, ttl, DEFAULT_PRECISION, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxCells maximum number of cells kept before the least recently used is evicted
+     * @param ttl how long a cell's results are served before they must be fetched again
+     * @param precision geohash precision of the cells (1 - 12)
+     * @param clock source of the current time in milliseconds
+     * @throws IllegalArgumentException if any input value is invalid
+     */
+    public NearbySearchCache(int maxCells, Duration ttl, int precision, LongSupplier clock) {
+        if (maxCells < 1) throw new IllegalArgumentException("Cache has to hold at least 1 cell.");
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("Cache TTL has to be positive.");
+        if (precision < 1 || precision > GeoHash.MAX_PRECISION) throw new IllegalArgumentException("Precision has to be within range: 1 - " + GeoHash.MAX_PRECISION);
+        this.precision = precision;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        // access-ordered so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxCells;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached places for the cell containing the given origin.
+     *
+     * @return the places, or null if the cell is not cached or has expired
+     */
+    public synchronized List<Place> get(double latitude, double longitude, int radius, PlaceType type) {
+        Key key = new Key(GeoHash.encode(latitude, longitude, precision), radius, type);
+        Entry entry = entries.get(key);
+        if (entry == null || clock.getAsLong() - entry.storedAt() >= ttlMillis) {
+            if (entry != null) entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.places();
+    }
+
+    /** Stores the places found by a search from the given origin, for its whole cell. */
+    public synchronized void put(double latitude, double longitude, int radius, PlaceType type, List<Place> places) {
+        Key key = new Key(GeoHash.encode(latitude, longitude, precision), radius, type);
+        entries.put(key, new Entry(clock.getAsLong(), List.copyOf(places)));
+    }
+
+    /**
+     * Returns a key for the cell containing the given origin, at this cache's precision, e.g. to share
+     * searches in flight that would be cached under the same entry.
+     */
+    public String cellKey(double latitude, double longitude, int radius, PlaceType type) {
+        return cellKey(latitude, longitude, precision, radius, type);
+    }
+
+    /** Returns a key for the cell containing the given origin, at the given precision. */
+    static String cellKey(double latitude, double longitude, int precision, int radius, PlaceType type) {
+        return GeoHash.encode(latitude, longitude, precision) + "/" + radius + "/" + type;
+    }
+
+    /** Returns the number of searches served from the cache. */
+    public synchronized long hitCount() { return hits; }
+
+    /** Returns the number of searches that were not cached or had expired. */
+    public synchronized long missCount() { return misses; }
+
+    /** Returns the number of cells currently cached. */
+    public synchronized int size() { return entries.size(); }
+}
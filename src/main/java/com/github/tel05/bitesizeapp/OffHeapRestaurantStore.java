@@ -0,0 +1,178 @@
+package com.github.tel05.bitesizeapp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class stores restaurants outside the Java heap, in direct {@link ByteBuffer}s, so large datasets
+ * don't add to the work of the garbage collector. The store itself is a handful of objects on the heap
+ * however many rows it holds.
+ * <p>
+ * Each row has a fixed-width 40 byte slot in the row buffer: float distance, rating, latitude and longitude
+ * (NaN when the location is unknown), the price level byte, and the arena offset and UTF-8 lengths of its
+ * strings. The strings (id, name, address, phone number) are stored one after another in a UTF-8 arena.
+ * Strings are only decoded when they are asked for, e.g. when {@link #restaurant(int)} creates
+ * a Restaurant to display a row.
+ * <p>
+ * Like {@link RestaurantStore}, rows are identified by their position in insertion order and are
+ * validated like the Restaurant constructor when added. Both buffers double when they are full, up to
+ * 2 GB each. The memory is released when the store is garbage collected.
+ */
+public class OffHeapRestaurantStore {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int SLOT_BYTES = 40;
+    // Offsets of the fields in a row slot
+    private static final int DISTANCE = 0, RATING = 4, LATITUDE = 8, LONGITUDE = 12, PRICE_LEVEL = 16,
+            STRINGS = 20, ID_LENGTH = 24, NAME_LENGTH = 28, ADDRESS_LENGTH = 32, PHONE_LENGTH = 36;
+
+    private int size;
+    private ByteBuffer rows;  // fixed-width row slots
+    private ByteBuffer arena; // UTF-8 strings; its position is the end of the last string
+
+    /** Creates an empty store. */
+    public OffHeapRestaurantStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty store with room for the given number of rows before the row buffer has to grow.
+     * @throws IllegalArgumentException if the capacity is negative or the row buffer would be larger than 2 GB
+     */
+    public OffHeapRestaurantStore(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Capacity cannot be negative.");
+        long rowBytes = (long) Math.max(1, initialCapacity) * SLOT_BYTES;
+        if (rowBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Capacity is larger than 2 GB of rows.");
+        rows = allocate((int) rowBytes);
+        // about 64 bytes of strings per row, up to the same 2 GB limit
+        arena = allocate((int) Math.min(Integer.MAX_VALUE, (long) Math.max(1, initialCapacity) * 64));
+    }
+
+    /**
+     * Adds a row with the details of a restaurant.
+     *
+     * @return the handle of the new row
+     * @throws IllegalArgumentException if any input value is invalid (same rules as the Restaurant constructor)
+     * @throws IllegalStateException if the store would need a buffer larger than 2 GB
+     */
+    public int add(String id, String name, String address, String phoneNumber,
+                   float distance, float rating, int priceLevel, double latitude, double longitude) {
+        String error = Restaurant.validate(id, name, address, phoneNumber, distance, rating, priceLevel, latitude, longitude);
+        if (error != null) throw new IllegalArgumentException(error);
+        if ((long) (size + 1) * SLOT_BYTES > rows.capacity()) rows = grow(rows, (long) (size + 1) * SLOT_BYTES);
+        // UTF-8 takes at most 3 bytes per char
+        long maxBytes = 3L * (id.length() + name.length() + address.length() + phoneNumber.length());
+        if (arena.position() + maxBytes > arena.capacity()) arena = grow(arena, arena.position() + maxBytes);
+
+        int row = size++;
+        int slot = row * SLOT_BYTES;
+        rows.putFloat(slot + DISTANCE, distance);
+        rows.putFloat(slot + RATING, rating);
+        rows.putFloat(slot + LATITUDE, (float) latitude);
+        rows.putFloat(slot + LONGITUDE, (float) longitude);
+        rows.put(slot + PRICE_LEVEL, (byte) priceLevel);
+        rows.putInt(slot + STRINGS, arena.position());
+        rows.putInt(slot + ID_LENGTH, putString(id));
+        rows.putInt(slot + NAME_LENGTH, putString(name));
+        rows.putInt(slot + ADDRESS_LENGTH, putString(address));
+        rows.putInt(slot + PHONE_LENGTH, putString(phoneNumber));
+        return row;
+    }
+
+    /**
+     * Adds a row with the details of a Restaurant object.
+     * @return the handle of the new row
+     */
+    public int add(Restaurant restaurant) {
+        return add(restaurant.getId(), restaurant.getName(), restaurant.getAddress(), restaurant.getPhoneNum(),
+                restaurant.getDistance(), restaurant.getRating(), restaurant.getPriceLevel(),
+                restaurant.getLatitude(), restaurant.getLongitude());
+    }
+
+    /** Returns the number of rows. */
+    public int size() { return size; }
+
+    /** Returns the number of bytes the rows and strings take outside the heap. */
+    public long offHeapBytes() { return (long) size * SLOT_BYTES + arena.position(); }
+
+    // Getter methods for each field of a row
+    public String id(int row) { return string(check(row), 0); }
+    public String name(int row) { return string(check(row), 1); }
+    public String address(int row) { return string(check(row), 2); }
+    public String phoneNumber(int row) { return string(check(row), 3); }
+    public float distance(int row) { return rows.getFloat(check(row) * SLOT_BYTES + DISTANCE); }
+    public float rating(int row) { return rows.getFloat(check(row) * SLOT_BYTES + RATING); }
+    public int priceLevel(int row) { return rows.get(check(row) * SLOT_BYTES + PRICE_LEVEL); }
+    public float latitude(int row) { return rows.getFloat(check(row) * SLOT_BYTES + LATITUDE); }
+    public float longitude(int row) { return rows.getFloat(check(row) * SLOT_BYTES + LONGITUDE); }
+    public boolean hasLocation(int row) { return !Float.isNaN(latitude(row)); }
+
+    /**
+     * Creates a Restaurant object for a row, decoding its strings.
+     * @param row the handle of the row
+     * @return a new Restaurant with the row's details
+     */
+    public Restaurant restaurant(int row) {
+        return new Restaurant(id(row), name(row), address(row), phoneNumber(row),
+                distance(row), rating(row), priceLevel(row), latitude(row), longitude(row));
+    }
+
+    /**
+     * Copies some rows into a new in-memory store, e.g. the candidates of a search, to rank them.
+     * @param handles the rows to copy, in the order they should have in the new store
+     * @return a store with the given rows
+     */
+    public RestaurantStore toStore(int[] handles) {
+        RestaurantStore store = new RestaurantStore(handles.length);
+        for (int row : handles) {
+            store.add(id(row), name(row), address(row), phoneNumber(row),
+                    distance(row), rating(row), priceLevel(row), latitude(row), longitude(row));
+        }
+        return store;
+    }
+
+    // Appends a string to the arena as UTF-8 and returns its length in bytes
+    private int putString(String s) {
+        int start = arena.position();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                // not ASCII: let the JDK encode the whole string
+                arena.position(start);
+                arena.put(s.getBytes(StandardCharsets.UTF_8));
+                return arena.position() - start;
+            }
+            arena.put((byte) c);
+        }
+        return s.length();
+    }
+
+    // Decodes one of the strings of a row (0 = id, 1 = name, 2 = address, 3 = phone number)
+    private String string(int row, int field) {
+        int slot = row * SLOT_BYTES;
+        int offset = rows.getInt(slot + STRINGS);
+        for (int f = 0; f < field; f++) offset += rows.getInt(slot + ID_LENGTH + 4 * f);
+        byte[] bytes = new byte[rows.getInt(slot + ID_LENGTH + 4 * field)];
+        arena.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("No restaurant row " + row);
+        return row;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    // Returns a buffer of at least the needed capacity holding the same bytes and position
+    private static ByteBuffer grow(ByteBuffer buffer, long needed) {
+        if (needed > Integer.MAX_VALUE) throw new IllegalStateException("Off-heap restaurant store is full (2 GB).");
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(needed, 2L * buffer.capacity()));
+        ByteBuffer bigger = allocate(capacity);
+        bigger.put(0, buffer, 0, buffer.capacity());
+        bigger.position(buffer.position());
+        return bigger;
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class stores a column of phone numbers as packed digits. Each number is split into its digits,
+ * packed into a long, and its format: the number with every digit replaced by '#', e.g. "(###)###-####".
+ * A region has only a few formats, so they are kept once in a dictionary and each row stores a short id.
+ * A phone number is rebuilt as a String only when {@link #get} is called, e.g. to display a row.
+ * <p>
+ * Numbers that can't be packed (more than 18 digits, a '#' of their own, or too many distinct formats)
+ * are kept as they are.
+ */
+public class PhoneColumn {
+    private static final int MAX_DIGITS = 18; // the most that always fit in a long
+    private static final char DIGIT = '#';
+    private static final short UNPACKED = -1;
+
+    private int size;
+    private long[] digits;
+    private short[] formats; // format id of each row, or UNPACKED
+
+    private final HashMap<String, Short> formatIds = new HashMap<>();
+    private final List<String> formatPatterns = new ArrayList<>();
+    private final HashMap<Integer, String> unpacked = new HashMap<>(); // numbers kept as they are, by row
+
+    /** Creates an empty column. */
+    public PhoneColumn() {
+        this(16);
+    }
+
+    /** Creates an empty column with room for the given number of phone numbers before it has to grow. */
+    public PhoneColumn(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Capacity cannot be negative.");
+        digits = new long[Math.max(1, initialCapacity)];
+        formats = new short[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Adds a phone number at the end of the column.
+     * @return the row of the phone number
+     */
+    public int add(String phoneNumber) {
+        if (size == digits.length) {
+            digits = Arrays.copyOf(digits, size * 2);
+            formats = Arrays.copyOf(formats, size * 2);
+        }
+        int row = size++;
+        long packed = 0;
+        int count = 0;
+        char[] pattern = phoneNumber.toCharArray();
+        for (int i = 0; i < pattern.length; i++) {
+            char c = pattern[i];
+            if (c == DIGIT) count = MAX_DIGITS + 1;
+            if (c >= '0' && c <= '9') {
+                packed = packed * 10 + (c - '0');
+                pattern[i] = DIGIT;
+                count++;
+            }
+            if (count > MAX_DIGITS) break;
+        }
+        short format = count > MAX_DIGITS ? UNPACKED : formatId(new String(pattern));
+        digits[row] = packed;
+        formats[row] = format;
+        if (format == UNPACKED) unpacked.put(row, phoneNumber);
+        return row;
+    }
+
+    /**
+     * Adds the phone number of a row of another column at the end of this one, copying its packed
+     * digits instead of rebuilding the number.
+     * @return the row of the phone number
+     */
+    public int add(PhoneColumn from, int row) {
+        if (from.formats[row] == UNPACKED) return add(from.unpacked.get(row));
+        short format = formatId(from.formatPatterns.get(from.formats[row]));
+        if (format == UNPACKED) return add(from.get(row));
+        if (size == digits.length) {
+            digits = Arrays.copyOf(digits, size * 2);
+            formats = Arrays.copyOf(formats, size * 2);
+        }
+        digits[size] = from.digits[row];
+        formats[size] = format;
+        return size++;
+    }
+
+    /** Rebuilds the phone number of a row. */
+    public String get(int row) {
+        if (formats[row] == UNPACKED) return unpacked.get(row);
+        char[] number = formatPatterns.get(formats[row]).toCharArray();
+        // fill the digits in from the last one
+        long packed = digits[row];
+        for (int i = number.length - 1; i >= 0; i--) {
+            if (number[i] == DIGIT) {
+                number[i] = (char) ('0' + packed % 10);
+                packed /= 10;
+            }
+        }
+        return new String(number);
+    }
+
+    /** Returns the number of phone numbers. */
+    public int size() { return size; }
+
+    /** Returns the number of distinct formats. */
+    public int formatCount() { return formatPatterns.size(); }
+
+    private short formatId(String pattern) {
+        Short id = formatIds.get(pattern);
+        if (id != null) return id;
+        if (formatPatterns.size() > Short.MAX_VALUE) return UNPACKED;
+        formatPatterns.add(pattern);
+        formatIds.put(pattern, (short) (formatPatterns.size() - 1));
+        return (short) (formatPatterns.size() - 1);
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class presents one candidate set (e.g. the nearest restaurants of a search) in several orders.
+ * Each ordering is computed the first time it is requested and cached, so switching between sort
+ * options reuses the ordering that was already computed, and orderings nobody asks for are never built.
+ * <p>
+ * An ordering is anything that ranks candidate rows of a {@link RestaurantStore}; the usual ones are
+ * the constants of {@link By}. Adding an ordering only means adding a constant (or another
+ * {@link Ordering} implementation), not another copy of the ranking code.
+ */
+public class RankedView {
+
+    /** Ranks candidate rows of a store. */
+    public interface Ordering {
+        /**
+         * Orders the candidates.
+         * @param rows the store the candidates belong to
+         * @param candidates row handles to rank, nearest first
+         * @return the candidates in this order
+         */
+        int[] rank(RestaurantStore rows, int[] candidates);
+    }
+
+    /** The standard orderings. Ties are broken by row handle, as in {@link Ranking}. */
+    public enum By implements Ordering {
+        /** Distance, low to high (the candidates are already nearest first). */
+        DISTANCE {
+            public int[] rank(RestaurantStore rows, int[] candidates) { return candidates.clone(); }
+        },
+        /** Rating, high to low. */
+        RATING {
+            public int[] rank(RestaurantStore rows, int[] candidates) {
+                return Ranking.largest(rows.ratingColumn(), candidates, candidates.length);
+            }
+        },
+        /** Price level, low to high. */
+        PRICE_LEVEL {
+            public int[] rank(RestaurantStore rows, int[] candidates) {
+                return Ranking.smallest(rows.priceLevelColumn(), candidates, candidates.length);
+            }
+        },
+        /** Name, alphabetically. */
+        NAME {
+            public int[] rank(RestaurantStore rows, int[] candidates) {
+                TopK<Integer> names = TopK.smallest(candidates.length,
+                        Comparator.comparing((Integer row) -> rows.name(row)).thenComparing(row -> row));
+                for (int row : candidates) names.offer(row);
+                List<Integer> sorted = names.toList();
+                int[] result = new int[sorted.size()];
+                for (int i = 0; i < result.length; i++) result[i] = sorted.get(i);
+                return result;
+            }
+        }
+    }
+
+    private final RestaurantStore rows;
+    private final int[] candidates;
+    private final Map<Ordering, int[]> orderings = new HashMap<>();
+
+    /**
+     * Creates a view over candidate rows of a store.
+     * @param rows the store of the restaurants
+     * @param candidates row handles of the candidates, nearest first
+     */
+    public RankedView(RestaurantStore rows, int[] candidates) {
+        this.rows = rows;
+        this.candidates = candidates.clone();
+    }
+
+    /** Returns the number of candidates. */
+    public int size() { return candidates.length; }
+
+    /**
+     * Returns the candidates in the given order, computing it on the first request.
+     * The returned array is the cached ordering (no copy), so it must not be modified.
+     */
+    public int[] get(Ordering ordering) {
+        int[] ranked = orderings.get(ordering);
+        if (ranked == null) {
+            long start = System.nanoTime();
+            ranked = ordering.rank(rows, candidates);
+            Metrics.RANKING_NANOS.record(System.nanoTime() - start);
+            orderings.put(ordering, ranked);
+        }
+        return ranked;
+    }
+
+    /** Checks whether an ordering has been computed already. */
+    public boolean isComputed(Ordering ordering) {
+        return orderings.containsKey(ordering);
+    }
+}
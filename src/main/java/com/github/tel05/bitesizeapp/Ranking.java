@@ -0,0 +1,92 @@
+package com.github.tel05.bitesizeapp;
+
+/**
+ * This class ranks rows by a primitive float key, working on int positions instead of objects.
+ * Each method keeps only the k best rows in a {@link TopFloatRows} heap whose root is the worst
+ * row kept, so a row that can't make the top k costs a single comparison, and memory is proportional
+ * to k rather than to the number of rows.
+ * <p>
+ * Rows with equal keys are ordered by position: lower position first for {@code smallest}
+ * and higher position first for {@code largest}. Putting rows in ID order therefore gives the
+ * same results as comparing by key and then by ID.
+ */
+public class Ranking {
+
+    /**
+     * Returns the positions of the k rows with the smallest keys, smallest first.
+     * @param keys key of every row
+     * @param k maximum number of rows to return
+     */
+    public static int[] smallest(float[] keys, int k) {
+        return smallest(keys, null, null, keys.length, k);
+    }
+
+    /**
+     * Returns the k candidates with the smallest keys, smallest first.
+     * @param keys key of every row, indexed by position
+     * @param candidates positions of the rows to rank
+     * @param k maximum number of rows to return
+     */
+    public static int[] smallest(float[] keys, int[] candidates, int k) {
+        return smallest(keys, null, candidates, candidates.length, k);
+    }
+
+    /**
+     * Returns the positions of the k rows with the largest keys, largest first.
+     * @param keys key of every row
+     * @param k maximum number of rows to return
+     */
+    public static int[] largest(float[] keys, int k) {
+        return largest(keys, null, null, keys.length, k);
+    }
+
+    /**
+     * Returns the k candidates with the largest keys, largest first.
+     * @param keys key of every row, indexed by position
+     * @param candidates positions of the rows to rank
+     * @param k maximum number of rows to return
+     */
+    public static int[] largest(float[] keys, int[] candidates, int k) {
+        return largest(keys, null, candidates, candidates.length, k);
+    }
+
+    /**
+     * Returns the k candidates with the smallest byte keys (e.g. price level), smallest first.
+     * @param keys key of every row, indexed by position
+     * @param candidates positions of the rows to rank
+     * @param k maximum number of rows to return
+     */
+    public static int[] smallest(byte[] keys, int[] candidates, int k) {
+        return smallest(null, keys, candidates, candidates.length, k);
+    }
+
+    /**
+     * Returns the k candidates with the largest byte keys, largest first.
+     * @param keys key of every row, indexed by position
+     * @param candidates positions of the rows to rank
+     * @param k maximum number of rows to return
+     */
+    public static int[] largest(byte[] keys, int[] candidates, int k) {
+        return largest(null, keys, candidates, candidates.length, k);
+    }
+
+    // Keys come from the float column, or from the byte column when it is null.
+    // candidates == null means every position from 0 to count - 1
+    private static int[] smallest(float[] floatKeys, byte[] byteKeys, int[] candidates, int count, int k) {
+        return top(floatKeys, byteKeys, candidates, count, k, true);
+    }
+
+    private static int[] largest(float[] floatKeys, byte[] byteKeys, int[] candidates, int count, int k) {
+        return top(floatKeys, byteKeys, candidates, count, k, false);
+    }
+
+    private static int[] top(float[] floatKeys, byte[] byteKeys, int[] candidates, int count, int k, boolean smallest) {
+        if (k < 0) throw new IllegalArgumentException("k cannot be negative.");
+        TopFloatRows kept = smallest ? TopFloatRows.smallest(Math.min(k, count)) : TopFloatRows.largest(Math.min(k, count));
+        for (int c = 0; c < count; c++) {
+            int i = candidates == null ? c : candidates[c];
+            kept.offer(floatKeys != null ? floatKeys[i] : byteKeys[i], i);
+        }
+        return kept.drain();
+    }
+}
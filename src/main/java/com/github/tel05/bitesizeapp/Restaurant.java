@@ -14,6 +14,8 @@ public class Restaurant {
     private final float distance;
     private final float rating;
     private final int priceLevel;
+    private final double latitude;   // NaN when the location is unknown
+    private final double longitude;  // NaN when the location is unknown
 
     /**
      * Constructor to initialize a Restaurant object with necessary details.
@@ -30,12 +32,49 @@ public class Restaurant {
      */
     public Restaurant(String id, String name, String address,
                       String phoneNumber, float distance, float rating, int priceLevel){
+        this(id, name, address, phoneNumber, distance, rating, priceLevel, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Constructor to initialize a Restaurant object with its location.
+     * Performs the same validation as the constructor without a location, and checks the coordinates.
+     *
+     * @param latitude the latitude of the restaurant (-90 to 90), or NaN if unknown
+     * @param longitude the longitude of the restaurant (-180 to 180), or NaN if unknown
+     * @throws IllegalArgumentException if any input value is invalid
+     */
+    public Restaurant(String id, String name, String address, String phoneNumber,
+                      float distance, float rating, int priceLevel, double latitude, double longitude){
+
+        // check if inputs are valid
+        String error = validate(id, name, address, phoneNumber, distance, rating, priceLevel, latitude, longitude);
+        if(error != null) throw new IllegalArgumentException(error);
+
+        // Initialize the instance variables
+        this.id = id;
+        this.name = name;
+        this.address = address;
+        this.phoneNumber = phoneNumber;
+        this.distance = distance;
+        this.rating = rating;
+        this.priceLevel = priceLevel;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
 
+    /**
+     * Checks restaurant details against the same rules as the constructor, without throwing.
+     * Lets bulk loaders skip bad rows cheaply.
+     *
+     * @return a message describing the first invalid value, or null if all values are valid
+     */
+    public static String validate(String id, String name, String address, String phoneNumber,
+                                  float distance, float rating, int priceLevel, double latitude, double longitude){
         // check if inputs are valid (no null or empty)
-        if(id == null || id.isEmpty()) throw new IllegalArgumentException("Restaurant ID cannot be null or empty.");
-        if(name == null || name.isEmpty()) throw new IllegalArgumentException("Restaurant name cannot be null or empty.");
-        if(address == null || address.isEmpty()) throw new IllegalArgumentException("Address cannot be null or empty.");
-        if(phoneNumber == null || phoneNumber.isEmpty()) throw new IllegalArgumentException("Phone number cannot be null or empty.");
+        if(id == null || id.isEmpty()) return "Restaurant ID cannot be null or empty.";
+        if(name == null || name.isEmpty()) return "Restaurant name cannot be null or empty.";
+        if(address == null || address.isEmpty()) return "Address cannot be null or empty.";
+        if(phoneNumber == null || phoneNumber.isEmpty()) return "Phone number cannot be null or empty.";
         // In Google API distances are positive range, ratings are between 1.0 and 5.0 and
         /* price level scale:
             0 Free
@@ -45,21 +84,18 @@ public class Restaurant {
             4 Very Expensive
         */
         // Validate that the distance is non-negative
-        if(distance < 0) throw new IllegalArgumentException("Distance cannot be a negative miles.");
+        if(distance < 0) return "Distance cannot be a negative miles.";
         // Validate that the rating is within the range of 1.0 to 5.0
-        if(rating < 1.0f || rating > 5.0f) throw new IllegalArgumentException("Rating has to be within range: 1.0 - 5.0");
+        if(rating < 1.0f || rating > 5.0f) return "Rating has to be within range: 1.0 - 5.0";
         // Validate that the price level is between 0 and 4
-        if(priceLevel < 0 || priceLevel > 4) throw new IllegalArgumentException("Price level has to be within range: 0 - 4");
-
-        // Initialize the instance variables
-        this.id = id;
-        this.name = name;
-        this.address = address;
-        this.phoneNumber = phoneNumber;
-        this.distance = distance;
-        this.rating = rating;
-        this.priceLevel = priceLevel;
+        if(priceLevel < 0 || priceLevel > 4) return "Price level has to be within range: 0 - 4";
+        // Validate the coordinates, unless the location is unknown
+        if(Double.isNaN(latitude) != Double.isNaN(longitude)) return "Latitude and longitude have to be both known or both unknown.";
+        if(latitude < -90 || latitude > 90) return "Latitude has to be within range: -90 - 90";
+        if(longitude < -180 || longitude > 180) return "Longitude has to be within range: -180 - 180";
+        return null;
     }
+
     // Getter methods for each property
     public String getId(){ return this.id;}
     public String getName(){ return this.name;}
@@ -68,6 +104,9 @@ public class Restaurant {
     public float getDistance(){ return this.distance;}
     public float getRating(){ return this.rating;}
     public int getPriceLevel() {return this.priceLevel;}
+    public double getLatitude() {return this.latitude;}
+    public double getLongitude() {return this.longitude;}
+    public boolean hasLocation() {return !Double.isNaN(this.latitude);}
 
     /**
      * Compares this restaurant to another to determine equality.
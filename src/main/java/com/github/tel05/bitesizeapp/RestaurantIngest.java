@@ -0,0 +1,426 @@
+package com.github.tel05.bitesizeapp;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class loads restaurant exports in bulk into a {@link RestaurantStore}, reading them as a stream
+ * so a file of any size is loaded with a fixed amount of memory besides the rows themselves.
+ * <p>
+ * Two formats are supported, both with the fields id, name, address, phoneNumber, distance,
+ * rating, priceLevel, latitude and longitude (latitude and longitude are optional):
+ * <ul>
+ *   <li>JSON lines: one JSON object per row, read with Gson's streaming {@link JsonReader}.
+ *       Other fields are ignored.</li>
+ *   <li>CSV: a header row naming the columns (in any order, after an optional byte order mark),
+ *       then one row per line. Fields containing commas, quotes or line breaks are quoted, with quotes
+ *       doubled. The tokenizer works on a character buffer and parses numbers in place, so only the
+ *       string fields create objects.</li>
+ * </ul>
+ * Rows are checked with {@link Restaurant#validate}; invalid rows (and fields that aren't numbers)
+ * are counted and skipped without throwing, and the first few reasons are kept in the {@link Report}.
+ * Only a malformed file (broken JSON, an unterminated quote) stops the load, with an IOException.
+ */
+public class RestaurantIngest {
+    // Number of rejected rows whose reason is kept in the report
+    public static final int MAX_REPORTED_ERRORS = 20;
+
+    private static final String[] FIELDS = {"id", "name", "address", "phoneNumber", "distance", "rating",
+            "priceLevel", "latitude", "longitude"};
+    private static final int ID = 0, NAME = 1, ADDRESS = 2, PHONE = 3, DISTANCE = 4, RATING = 5,
+            PRICE_LEVEL = 6, LATITUDE = 7, LONGITUDE = 8;
+
+    /**
+     * Outcome of a load.
+     * @param added number of rows added to the store
+     * @param rejected number of rows skipped because they were invalid
+     * @param errors the reasons of the first {@link #MAX_REPORTED_ERRORS} rejected rows, e.g. "line 12: ..."
+     */
+    public record Report(int added, int rejected, List<String> errors) {}
+
+    /**
+     * Loads a file, choosing the format from its extension (.csv, otherwise JSON lines).
+     * @see #csv
+     * @see #jsonLines
+     */
+    public static Report file(Path file, RestaurantStore store) throws IOException {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return file.getFileName().toString().toLowerCase().endsWith(".csv") ? csv(in, store) : jsonLines(in, store);
+        }
+    }
+
+    /**
+     * Loads CSV rows into a store.
+     *
+     * @param in the CSV text, starting with the header row
+     * @param store the store the valid rows are added to
+     * @return how many rows were added and rejected
+     * @throws IOException if reading fails, a quote is not closed, or the header misses a required column
+     */
+    public static Report csv(Reader in, RestaurantStore store) throws IOException {
+        CsvTokenizer csv = new CsvTokenizer(in);
+        if (!csv.next()) throw new IOException("CSV file is empty.");
+        // column[f] is the position of field f in each row, or -1 if the file doesn't have it
+        int[] column = new int[FIELDS.length];
+        Arrays.fill(column, -1);
+        for (int c = 0; c < csv.count; c++) {
+            String header = csv.string(c);
+            // a byte order mark written by some editors before the first column name
+            if (c == 0 && header.startsWith("\uFEFF")) header = header.substring(1);
+            header = header.strip();
+            for (int f = 0; f < FIELDS.length; f++) {
+                if (FIELDS[f].equalsIgnoreCase(header)) column[f] = c;
+            }
+        }
+        for (int f = ID; f <= PRICE_LEVEL; f++) {
+            if (column[f] < 0) throw new IOException("CSV header has no " + FIELDS[f] + " column.");
+        }
+
+        Loader loader = new Loader(store, "line");
+        while (csv.next()) {
+            if (csv.count == 1 && csv.length(0) == 0) continue; // blank line
+            int where = csv.line;
+            String id = csv.string(column[ID]);
+            String name = csv.string(column[NAME]);
+            String address = csv.string(column[ADDRESS]);
+            String phone = csv.string(column[PHONE]);
+            double distance = csv.number(column[DISTANCE]);
+            double rating = csv.number(column[RATING]);
+            double priceLevel = csv.number(column[PRICE_LEVEL]);
+            double latitude = column[LATITUDE] < 0 || csv.length(column[LATITUDE]) == 0 ? Double.NaN : csv.number(column[LATITUDE]);
+            double longitude = column[LONGITUDE] < 0 || csv.length(column[LONGITUDE]) == 0 ? Double.NaN : csv.number(column[LONGITUDE]);
+            if (csv.invalidNumber >= 0) {
+                loader.reject(where, "Column " + csv.invalidNumber + " is not a number.");
+                continue;
+            }
+            loader.add(where, id, name, address, phone, distance, rating, priceLevel, latitude, longitude);
+        }
+        return loader.report();
+    }
+
+    /**
+     * Loads JSON lines into a store: a sequence of JSON objects, normally one per line.
+     * Values that aren't objects (arrays, strings, numbers) are rejected like invalid rows.
+     *
+     * @param in the JSON text
+     * @param store the store the valid rows are added to
+     * @return how many rows were added and rejected
+     * @throws IOException if reading fails or the text is not valid JSON
+     */
+    public static Report jsonLines(Reader in, RestaurantStore store) throws IOException {
+        JsonReader json = new JsonReader(in);
+        // lenient mode reads several top-level values from one stream
+        json.setStrictness(Strictness.LENIENT);
+        Loader loader = new Loader(store, "record");
+        String[] strings = new String[PHONE + 1];
+        double[] numbers = new double[FIELDS.length];
+        int record = 0;
+        while (json.peek() != JsonToken.END_DOCUMENT) {
+            record++;
+            Arrays.fill(strings, null);
+            Arrays.fill(numbers, Double.NaN);
+            String invalid = null;
+            if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                // valid JSON but not a row, e.g. an array: skip it like an invalid row
+                json.skipValue();
+                loader.reject(record, "Record is not a JSON object.");
+                continue;
+            }
+            json.beginObject();
+            while (json.hasNext()) {
+                int f = field(json.nextName());
+                JsonToken token = json.peek();
+                if (f < 0 || token == JsonToken.NULL) {
+                    json.skipValue();
+                } else if (f <= PHONE && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                    strings[f] = json.nextString();
+                } else if (f > PHONE && token == JsonToken.NUMBER) {
+                    numbers[f] = json.nextDouble();
+                } else if (f > PHONE && token == JsonToken.STRING) {
+                    char[] value = json.nextString().toCharArray();
+                    numbers[f] = parseNumber(value, 0, value.length);
+                    if (Double.isNaN(numbers[f]) && invalid == null) invalid = FIELDS[f] + " is not a number.";
+                } else {
+                    json.skipValue();
+                    if (invalid == null) invalid = FIELDS[f] + " has the wrong type.";
+                }
+            }
+            json.endObject();
+            int where = record;
+            if (invalid != null) {
+                loader.reject(where, invalid);
+            } else if (Double.isNaN(numbers[DISTANCE]) || Double.isNaN(numbers[RATING]) || Double.isNaN(numbers[PRICE_LEVEL])) {
+                loader.reject(where, "Distance, rating and price level are required.");
+            } else {
+                loader.add(where, strings[ID], strings[NAME], strings[ADDRESS], strings[PHONE], numbers[DISTANCE],
+                        numbers[RATING], numbers[PRICE_LEVEL], numbers[LATITUDE], numbers[LONGITUDE]);
+            }
+        }
+        return loader.report();
+    }
+
+    private static int field(String name) {
+        for (int f = 0; f < FIELDS.length; f++) {
+            if (FIELDS[f].equals(name)) return f;
+        }
+        return -1;
+    }
+
+    // Validates rows, adds the valid ones to the store and counts the rest
+    private static final class Loader {
+        final RestaurantStore store;
+        final String unit; // what the position in error messages counts, e.g. "line"
+        final List<String> errors = new ArrayList<>();
+        int added;
+        int rejected;
+
+        Loader(RestaurantStore store, String unit) {
+            this.store = store;
+            this.unit = unit;
+        }
+
+        void add(int where, String id, String name, String address, String phone, double distance,
+                 double rating, double priceLevel, double latitude, double longitude) {
+            // beyond the int range the cast below saturates, so the range is checked first
+            if (priceLevel < Integer.MIN_VALUE || priceLevel > Integer.MAX_VALUE) {
+                reject(where, "Price level has to be within range: 0 - 4");
+                return;
+            }
+            if (priceLevel != (int) priceLevel) {
+                reject(where, "Price level has to be a whole number.");
+                return;
+            }
+            try {
+                // the store validates the row like the Restaurant constructor
+                store.add(id, name, address, phone, (float) distance, (float) rating, (int) priceLevel, latitude, longitude);
+                added++;
+            } catch (IllegalArgumentException e) {
+                reject(where, e.getMessage());
+            }
+        }
+
+        void reject(int where, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) errors.add(unit + " " + where + ": " + reason);
+        }
+
+        Report report() {
+            return new Report(added, rejected, List.copyOf(errors));
+        }
+    }
+
+    /* *********************************************************************
+     * Number parsing straight from characters.
+     **********************************************************************/
+
+    // Parses a decimal number ([-]digits[.digits][e[-]digits]) from s[start, end), ignoring spaces
+    // around it, or returns NaN
+    private static double parseNumber(char[] s, int start, int end) {
+        while (start < end && s[start] <= ' ') start++;
+        while (end > start && s[end - 1] <= ' ') end--;
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s[i] == '-' || s[i] == '+')) negative = s[i++] == '-';
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0; // number of digits after the point
+        boolean point = false;
+        for (; i < end; i++) {
+            char c = s[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (point) scale++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) return Double.NaN;
+        // up to 15 digits the mantissa is below 2^53, so it is an exact double
+        if (i < end || digits > 15 || scale > 22) {
+            // exponents and long numbers are rare, the JDK parser handles them exactly
+            return slowParse(s, start, end);
+        }
+        // both operands are exact doubles, so the quotient is correctly rounded
+        double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private static double slowParse(char[] s, int start, int end) {
+        // only plain decimals with an optional exponent, so Double.parseDouble doesn't throw below
+        int i = start;
+        if (i < end && (s[i] == '-' || s[i] == '+')) i++;
+        int digits = 0;
+        for (; i < end && ((s[i] >= '0' && s[i] <= '9') || s[i] == '.'); i++) {
+            if (s[i] != '.') digits++;
+        }
+        if (digits == 0) return Double.NaN;
+        if (i < end && (s[i] == 'e' || s[i] == 'E')) {
+            i++;
+            if (i < end && (s[i] == '-' || s[i] == '+')) i++;
+            int exponentDigits = 0;
+            for (; i < end && s[i] >= '0' && s[i] <= '9'; i++) exponentDigits++;
+            if (exponentDigits == 0) return Double.NaN;
+        }
+        if (i < end) return Double.NaN;
+        return Double.parseDouble(new String(s, start, end - start));
+    }
+
+    /* *********************************************************************
+     * CSV tokenizer: splits records into fields as offsets into its buffer.
+     **********************************************************************/
+
+    private static final class CsvTokenizer {
+        private static final int BUFFER_SIZE = 1 << 16;
+
+        private final Reader in;
+        private char[] buffer = new char[BUFFER_SIZE];
+        private int position;   // start of the next record
+        private int limit;      // end of the characters read so far
+        private boolean eof;
+
+        // Fields of the current record: buffer[start[i], end[i]), with doubled quotes if escaped[i]
+        int count;
+        private int[] start = new int[16];
+        private int[] end = new int[16];
+        private boolean[] escaped = new boolean[16];
+        int line;               // line of the current record, starting at 1
+        private int nextLine = 1;
+        int invalidNumber = -1; // first column of the current record that failed number(), or -1
+
+        CsvTokenizer(Reader in) {
+            this.in = in;
+        }
+
+        /** Moves to the next record, returns false at the end of the input. */
+        boolean next() throws IOException {
+            invalidNumber = -1;
+            while (true) {
+                if (position == limit && eof) return false;
+                int lines = tokenize();
+                if (lines >= 0) {
+                    line = nextLine;
+                    nextLine += lines;
+                    return true;
+                }
+                // the record continues past the buffer: keep its start and read more
+                if (eof) throw new IOException("Unterminated quoted field at line " + nextLine + ".");
+                fill();
+            }
+        }
+
+        // Splits the record at position into fields. Returns the number of lines it spans
+        // and moves past it, or returns -1 if the record isn't complete in the buffer
+        private int tokenize() {
+            int i = position;
+            int lines = 1;
+            count = 0;
+            while (true) {
+                if (count == start.length) grow();
+                boolean isEscaped = false;
+                boolean quoted = i < limit && buffer[i] == '"';
+                int fieldStart, fieldEnd;
+                if (quoted) {
+                    fieldStart = ++i;
+                    while (true) {
+                        if (i >= limit) return -1;
+                        char c = buffer[i];
+                        if (c == '"') {
+                            if (i + 1 >= limit && !eof) return -1;
+                            if (i + 1 < limit && buffer[i + 1] == '"') {
+                                isEscaped = true;
+                                i += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        if (c == '\n') lines++;
+                        i++;
+                    }
+                    fieldEnd = i++;
+                    // anything between the closing quote and the separator is ignored
+                    while (i < limit && buffer[i] != ',' && buffer[i] != '\n') i++;
+                } else {
+                    fieldStart = i;
+                    while (i < limit && buffer[i] != ',' && buffer[i] != '\n') i++;
+                    fieldEnd = i;
+                    // the last field of a line ending in \r\n
+                    if (fieldEnd > fieldStart && buffer[fieldEnd - 1] == '\r' && (i == limit || buffer[i] == '\n')) fieldEnd--;
+                }
+                start[count] = fieldStart;
+                end[count] = fieldEnd;
+                escaped[count] = isEscaped;
+                count++;
+                if (i >= limit) {
+                    if (!eof) return -1;
+                    position = limit;
+                    return lines;
+                }
+                if (buffer[i++] == '\n') {
+                    position = i;
+                    return lines;
+                }
+            }
+        }
+
+        // Moves the unfinished record to the front of the buffer (growing it if the record fills it)
+        // and reads more characters after it
+        private void fill() throws IOException {
+            int remaining = limit - position;
+            if (remaining == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            else System.arraycopy(buffer, position, buffer, 0, remaining);
+            position = 0;
+            limit = remaining;
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) eof = true;
+            else limit += read;
+        }
+
+        private void grow() {
+            start = Arrays.copyOf(start, count * 2);
+            end = Arrays.copyOf(end, count * 2);
+            escaped = Arrays.copyOf(escaped, count * 2);
+        }
+
+        int length(int column) {
+            return column < count ? end[column] - start[column] : 0;
+        }
+
+        /** Returns a field as a string, null if the record has no such column. */
+        String string(int column) {
+            if (column >= count) return null;
+            if (!escaped[column]) return new String(buffer, start[column], end[column] - start[column]);
+            StringBuilder s = new StringBuilder(end[column] - start[column]);
+            for (int i = start[column]; i < end[column]; i++) {
+                s.append(buffer[i]);
+                if (buffer[i] == '"') i++; // doubled quote
+            }
+            return s.toString();
+        }
+
+        /** Parses a field as a number without creating a string; records the column if it isn't one. */
+        double number(int column) {
+            double value = column < count ? parseNumber(buffer, start[column], end[column]) : Double.NaN;
+            if (Double.isNaN(value) && invalidNumber < 0) invalidNumber = column + 1;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.github.tel05.bitesizeapp;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads and writes restaurant snapshots: binary files holding a whole dataset, which are
+ * opened by memory-mapping them instead of parsing them. Opening a snapshot only checks its header,
+ * so it takes the same time for 10 rows or millions; a row's fields are read from the mapped file
+ * when they are asked for, and strings are only decoded then.
+ * <p>
+ * File layout (little-endian), for n rows:
+ * <ul>
+ *   <li>a 32 byte header: magic, version, row count, reserved, string heap size in bytes (long), reserved (long)</li>
+ *   <li>fixed-width columns: float distance[n], float rating[n], float latitude[n], float longitude[n]
+ *       (NaN when the location is unknown), byte priceLevel[n] padded to a multiple of 4 bytes</li>
+ *   <li>int stringEnd[4n]: end offset in the heap of the id, name, address and phone number of each row
+ *       (each string starts where the previous one ends)</li>
+ *   <li>the string heap: every string in UTF-8, in the same order</li>
+ * </ul>
+ * A file is mapped as a single buffer, so a snapshot can't be larger than 2 GB. Since only the header
+ * is checked when opening, a string whose offsets are corrupt is reported when it is read, with an
+ * {@link IllegalStateException}.
+ */
+public class RestaurantSnapshot {
+    private static final int MAGIC = 0x42535253; // "BSRS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int STRINGS_PER_ROW = 4; // id, name, address, phone number
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int distances;  // byte offset of each column
+    private final int ratings;
+    private final int latitudes;
+    private final int longitudes;
+    private final int priceLevels;
+    private final int stringEnds;
+    private final int heap;
+    private final int heapBytes;
+
+    private RestaurantSnapshot(MappedByteBuffer buffer, int size, int heapBytes) {
+        this.buffer = buffer;
+        this.size = size;
+        this.heapBytes = heapBytes;
+        distances = HEADER_BYTES;
+        ratings = distances + 4 * size;
+        latitudes = ratings + 4 * size;
+        longitudes = latitudes + 4 * size;
+        priceLevels = longitudes + 4 * size;
+        stringEnds = priceLevels + padded(size);
+        heap = stringEnds + 4 * STRINGS_PER_ROW * size;
+    }
+
+    /**
+     * Writes the rows of a store to a snapshot file, replacing the file if it exists.
+     *
+     * @param store the rows to write
+     * @param file the path of the snapshot file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the snapshot would be larger than 2 GB
+     */
+    public static void write(RestaurantStore store, Path file) throws IOException {
+        int n = store.size();
+        long columnBytes = HEADER_BYTES + 16L * n + padded(n) + 4L * STRINGS_PER_ROW * n;
+        if (columnBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Snapshot would be larger than 2 GB.");
+        // The strings are sized first, so the heap is encoded straight into the mapped file
+        int[] stringEnds = new int[STRINGS_PER_ROW * n];
+        long heapBytes = 0;
+        for (int row = 0; row < n; row++) {
+            int s = STRINGS_PER_ROW * row;
+            heapBytes += utf8Length(store.id(row));
+            stringEnds[s] = (int) Math.min(heapBytes, Integer.MAX_VALUE);
+            heapBytes += utf8Length(store.name(row));
+            stringEnds[s + 1] = (int) Math.min(heapBytes, Integer.MAX_VALUE);
+            heapBytes += utf8Length(store.address(row));
+            stringEnds[s + 2] = (int) Math.min(heapBytes, Integer.MAX_VALUE);
+            heapBytes += utf8Length(store.phoneNumber(row));
+            stringEnds[s + 3] = (int) Math.min(heapBytes, Integer.MAX_VALUE);
+        }
+        long fileBytes = columnBytes + heapBytes;
+        if (fileBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Snapshot would be larger than 2 GB.");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(heapBytes).putLong(0);
+            for (int row = 0; row < n; row++) out.putFloat(store.distance(row));
+            for (int row = 0; row < n; row++) out.putFloat(store.rating(row));
+            for (int row = 0; row < n; row++) out.putFloat(store.latitude(row));
+            for (int row = 0; row < n; row++) out.putFloat(store.longitude(row));
+            for (int row = 0; row < n; row++) out.put((byte) store.priceLevel(row));
+            out.position(out.position() + padded(n) - n);
+            for (int end : stringEnds) out.putInt(end);
+            int heap = (int) columnBytes;
+            for (int row = 0; row < n; row++) {
+                int s = STRINGS_PER_ROW * row;
+                putUtf8(out, store.id(row), heap + stringEnds[s]);
+                putUtf8(out, store.name(row), heap + stringEnds[s + 1]);
+                putUtf8(out, store.address(row), heap + stringEnds[s + 2]);
+                putUtf8(out, store.phoneNumber(row), heap + stringEnds[s + 3]);
+            }
+            out.force();
+        }
+    }
+
+    /**
+     * Opens a snapshot file by mapping it into memory. Only the header is read.
+     *
+     * @param file the path of the snapshot file
+     * @return the opened snapshot
+     * @throws IOException if the file cannot be read, is not a snapshot, has another version or is truncated
+     */
+    public static RestaurantSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileBytes = channel.size();
+            if (fileBytes < HEADER_BYTES) throw new IOException("Not a restaurant snapshot: " + file);
+            if (fileBytes > Integer.MAX_VALUE) throw new IOException("Snapshot is larger than 2 GB: " + file);
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileBytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) throw new IOException("Not a restaurant snapshot: " + file);
+            if (buffer.getInt(4) != VERSION) throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + ": " + file);
+            int n = buffer.getInt(8);
+            long heapBytes = buffer.getLong(16);
+            if (n < 0 || heapBytes < 0 || HEADER_BYTES + 16L * n + padded(n) + 4L * STRINGS_PER_ROW * n + heapBytes != fileBytes) {
+                throw new IOException("Truncated restaurant snapshot: " + file);
+            }
+            return new RestaurantSnapshot(buffer, n, (int) heapBytes);
+        }
+    }
+
+    /** Returns the number of rows. */
+    public int size() { return size; }
+
+    // Getter methods for each field of a row, read from the mapped file
+    public String id(int row) { return string(check(row), 0); }
+    public String name(int row) { return string(check(row), 1); }
+    public String address(int row) { return string(check(row), 2); }
+    public String phoneNumber(int row) { return string(check(row), 3); }
+    public float distance(int row) { return buffer.getFloat(distances + 4 * check(row)); }
+    public float rating(int row) { return buffer.getFloat(ratings + 4 * check(row)); }
+    public int priceLevel(int row) { return buffer.get(priceLevels + check(row)); }
+    public float latitude(int row) { return buffer.getFloat(latitudes + 4 * check(row)); }
+    public float longitude(int row) { return buffer.getFloat(longitudes + 4 * check(row)); }
+    public boolean hasLocation(int row) { return !Float.isNaN(latitude(row)); }
+
+    /**
+     * Creates a Restaurant object for a row.
+     * @param row the row, from 0 to size() - 1
+     * @return a new Restaurant with the row's details
+     */
+    public Restaurant restaurant(int row) {
+        return new Restaurant(id(row), name(row), address(row), phoneNumber(row),
+                distance(row), rating(row), priceLevel(row), latitude(row), longitude(row));
+    }
+
+    /**
+     * Copies every row into a new in-memory store, e.g. to rank them.
+     * @return a store with the snapshot's rows, in order
+     */
+    public RestaurantStore toStore() {
+        RestaurantStore store = new RestaurantStore(size);
+        for (int row = 0; row < size; row++) {
+            store.add(id(row), name(row), address(row), phoneNumber(row),
+                    distance(row), rating(row), priceLevel(row), latitude(row), longitude(row));
+        }
+        return store;
+    }
+
+    // Decodes one of the strings of a row (0 = id, 1 = name, 2 = address, 3 = phone number)
+    private String string(int row, int field) {
+        int s = STRINGS_PER_ROW * row + field;
+        int start = s == 0 ? 0 : buffer.getInt(stringEnds + 4 * (s - 1));
+        int end = buffer.getInt(stringEnds + 4 * s);
+        // the ends are only read here, so a corrupt file is reported when its string is asked for
+        if (start < 0 || end < start || end > heapBytes) {
+            throw new IllegalStateException("Corrupt restaurant snapshot: string " + s + " is outside the string heap.");
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(heap + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("No restaurant row " + row);
+        return row;
+    }
+
+    // Size of the price level column, padded so the int columns after it stay aligned
+    private static int padded(int n) {
+        return (n + 3) & ~3;
+    }
+
+    // Number of bytes of a string in UTF-8, like String.getBytes (an unpaired surrogate becomes '?')
+    private static int utf8Length(String s) {
+        int bytes = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) continue;
+            if (c < 0x800) {
+                bytes++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 2; // 4 bytes for the pair
+                i++;
+            }
+        }
+        return bytes;
+    }
+
+    // Encodes a string in UTF-8 at the buffer's position, which has to end where it was sized to end
+    private static void putUtf8(MappedByteBuffer out, String s, int end) {
+        boolean ascii = true;
+        for (int i = 0; i < s.length() && ascii; i++) ascii = s.charAt(i) < 0x80;
+        if (ascii) {
+            for (int i = 0; i < s.length(); i++) out.put((byte) s.charAt(i));
+        } else {
+            out.put(s.getBytes(StandardCharsets.UTF_8));
+        }
+        if (out.position() != end) throw new IllegalStateException("Store changed while the snapshot was written.");
+    }
+}
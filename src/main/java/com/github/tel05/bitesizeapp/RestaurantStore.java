@@ -0,0 +1,255 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.Arrays;
+
+/**
+ * This class stores restaurants column by column instead of as Restaurant objects.
+ * Numeric fields live in dense primitive arrays ({@code float[]} distance and rating, {@code byte[]} price
+ * level, {@code float[]} latitude and longitude) and the strings in separate arrays, so ranking and
+ * filtering scan a few primitive arrays instead of following a pointer to every object.
+ * <p>
+ * Addresses and phone numbers are dictionary-encoded ({@link AddressColumn}, {@link PhoneColumn}):
+ * the locality of an address and the format of a phone number are stored once for all the rows,
+ * and both are rebuilt as Strings only when they are asked for.
+ * <p>
+ * Each row is identified by an int handle (its position, starting at 0, in insertion order).
+ * Rows are validated like the Restaurant constructor when added, and a Restaurant object is only
+ * created when {@link #restaurant(int)} is called for a row, e.g. to display it.
+ */
+public class RestaurantStore {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+    private String[] ids;
+    private String[] names;
+    private final AddressColumn addresses;
+    private final PhoneColumn phoneNumbers;
+    private float[] distances;
+    private float[] ratings;
+    private byte[] priceLevels;
+    private float[] latitudes;  // NaN when the location is unknown
+    private float[] longitudes; // NaN when the location is unknown
+    private volatile KdTree spatialIndex; // built on first use, dropped when a row is added
+
+    /** Creates an empty store. */
+    public RestaurantStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /** Creates an empty store with room for the given number of rows before it has to grow. */
+    public RestaurantStore(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Capacity cannot be negative.");
+        allocate(initialCapacity);
+        addresses = new AddressColumn(initialCapacity);
+        phoneNumbers = new PhoneColumn(initialCapacity);
+    }
+
+    /** Creates a store holding the given restaurants, in order. */
+    public static RestaurantStore of(Restaurant... restaurants) {
+        RestaurantStore store = new RestaurantStore(restaurants.length);
+        for (Restaurant restaurant : restaurants) store.add(restaurant);
+        return store;
+    }
+
+    /**
+     * Adds a row with the details of a restaurant.
+     *
+     * @return the handle of the new row
+     * @throws IllegalArgumentException if any input value is invalid (same rules as the Restaurant constructor)
+     */
+    public int add(String id, String name, String address, String phoneNumber,
+                   float distance, float rating, int priceLevel, double latitude, double longitude) {
+        String error = Restaurant.validate(id, name, address, phoneNumber, distance, rating, priceLevel, latitude, longitude);
+        if (error != null) throw new IllegalArgumentException(error);
+        if (size == ids.length) allocate(Math.max(INITIAL_CAPACITY, size * 2));
+        spatialIndex = null;
+        int row = size++;
+        ids[row] = id;
+        names[row] = name;
+        addresses.add(address);
+        phoneNumbers.add(phoneNumber);
+        distances[row] = distance;
+        ratings[row] = rating;
+        priceLevels[row] = (byte) priceLevel;
+        latitudes[row] = (float) latitude;
+        longitudes[row] = (float) longitude;
+        return row;
+    }
+
+    /**
+     * Adds a row with the details of a Restaurant object.
+     * @return the handle of the new row
+     */
+    public int add(Restaurant restaurant) {
+        return add(restaurant.getId(), restaurant.getName(), restaurant.getAddress(), restaurant.getPhoneNum(),
+                restaurant.getDistance(), restaurant.getRating(), restaurant.getPriceLevel(),
+                restaurant.getLatitude(), restaurant.getLongitude());
+    }
+
+    /**
+     * Returns the rows sorted by ID (rows with the same ID keep their order). The rows are copied column
+     * by column, without creating Restaurant objects or rebuilding addresses and phone numbers.
+     * Either way the store returned is trimmed to its rows, so its columns are handed out without a copy.
+     * @return this store if its rows are already in ID order, otherwise a sorted copy
+     */
+    public RestaurantStore inIdOrder() {
+        boolean sorted = true;
+        for (int row = 1; row < size && sorted; row++) sorted = ids[row - 1].compareTo(ids[row]) <= 0;
+        if (sorted) {
+            trim();
+            return this;
+        }
+
+        int[] order = new int[size];
+        for (int row = 0; row < size; row++) order[row] = row;
+        sortById(order, new int[size], 0, size);
+        RestaurantStore copy = new RestaurantStore(size);
+        for (int row : order) copy.copyRow(this, row, distances[row]);
+        return copy;
+    }
+
+    /**
+     * Returns a new store with some of the rows, each with a new distance, e.g. the distance from
+     * the location searched. The rows are copied column by column like {@link #inIdOrder()}.
+     * @param rows handles of the rows to copy, in the order of the new store
+     * @param newDistances the distance of each row copied, in the same order
+     * @throws IllegalArgumentException if the arrays have different lengths or a distance is invalid
+     */
+    public RestaurantStore select(int[] rows, float[] newDistances) {
+        if (rows.length != newDistances.length) throw new IllegalArgumentException("Rows and distances have different lengths.");
+        RestaurantStore copy = new RestaurantStore(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            if (newDistances[i] < 0) throw new IllegalArgumentException("Distance cannot be a negative miles.");
+            copy.copyRow(this, check(rows[i]), newDistances[i]);
+        }
+        return copy;
+    }
+
+    /** Returns the number of rows. */
+    public int size() { return size; }
+
+    // Getter methods for each field of a row
+    public String id(int row) { return ids[check(row)]; }
+    public String name(int row) { return names[check(row)]; }
+    public String address(int row) { return addresses.get(check(row)); }
+    public String phoneNumber(int row) { return phoneNumbers.get(check(row)); }
+    public float distance(int row) { return distances[check(row)]; }
+    public float rating(int row) { return ratings[check(row)]; }
+    public int priceLevel(int row) { return priceLevels[check(row)]; }
+    public float latitude(int row) { return latitudes[check(row)]; }
+    public float longitude(int row) { return longitudes[check(row)]; }
+    public boolean hasLocation(int row) { return !Float.isNaN(latitudes[check(row)]); }
+
+    /**
+     * Creates a Restaurant object for a row.
+     * @param row the handle of the row
+     * @return a new Restaurant with the row's details
+     */
+    public Restaurant restaurant(int row) {
+        check(row);
+        return new Restaurant(ids[row], names[row], addresses.get(row), phoneNumbers.get(row),
+                distances[row], ratings[row], priceLevels[row], latitudes[row], longitudes[row]);
+    }
+
+    /* *********************************************************************
+     * Column access for ranking. Each column is exactly size() long. Reading
+     * a column never changes the store, so a store that is no longer
+     * modified can be read by many threads: on a trimmed store (e.g. one
+     * returned by inIdOrder()) it is the store's own array (no copy), so it
+     * must not be modified, otherwise it is a copy.
+     **********************************************************************/
+
+    public float[] distanceColumn() { return column(distances); }
+    public float[] ratingColumn() { return column(ratings); }
+    public byte[] priceLevelColumn() { return ids.length == size ? priceLevels : Arrays.copyOf(priceLevels, size); }
+    public float[] latitudeColumn() { return column(latitudes); }
+    public float[] longitudeColumn() { return column(longitudes); }
+
+    /** Checks whether every row has a location. */
+    public boolean allHaveLocation() {
+        for (int i = 0; i < size; i++) {
+            if (Float.isNaN(latitudes[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a spatial index over the locations of the rows. It is built the first time it is asked
+     * for and kept until a row is added, so searching the same rows again doesn't rebuild it.
+     * @throws IllegalStateException if some row has no location
+     */
+    public KdTree spatialIndex() {
+        KdTree index = spatialIndex;
+        if (index == null) {
+            if (!allHaveLocation()) throw new IllegalStateException("Some rows have no location.");
+            index = new KdTree(latitudeColumn(), longitudeColumn());
+            spatialIndex = index;
+        }
+        return index;
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("No restaurant row " + row);
+        return row;
+    }
+
+    // Merge sorts the row handles in a[lo, hi) by ID, keeping rows with the same ID in order
+    private void sortById(int[] a, int[] aux, int lo, int hi) {
+        if (hi - lo < 2) return;
+        int mid = (lo + hi) >>> 1;
+        sortById(a, aux, lo, mid);
+        sortById(a, aux, mid, hi);
+        if (ids[a[mid - 1]].compareTo(ids[a[mid]]) <= 0) return;
+        System.arraycopy(a, lo, aux, lo, hi - lo);
+        for (int k = lo, i = lo, j = mid; k < hi; k++) {
+            if (i == mid) a[k] = aux[j++];
+            else if (j == hi) a[k] = aux[i++];
+            else if (ids[aux[j]].compareTo(ids[aux[i]]) < 0) a[k] = aux[j++];
+            else a[k] = aux[i++];
+        }
+    }
+
+    // appends a row of another store as it is stored, with the given distance
+    private void copyRow(RestaurantStore from, int row, float distance) {
+        int to = size++;
+        ids[to] = from.ids[row];
+        names[to] = from.names[row];
+        addresses.add(from.addresses, row);
+        phoneNumbers.add(from.phoneNumbers, row);
+        distances[to] = distance;
+        ratings[to] = from.ratings[row];
+        priceLevels[to] = from.priceLevels[row];
+        latitudes[to] = from.latitudes[row];
+        longitudes[to] = from.longitudes[row];
+    }
+
+    // the first size() values of a float column, without a copy once the store is trimmed
+    private float[] column(float[] values) {
+        return ids.length == size ? values : Arrays.copyOf(values, size);
+    }
+
+    // shrink the arrays to the number of rows, so columns can be handed out without a copy
+    private void trim() {
+        if (ids.length != size) allocate(size);
+    }
+
+    private void allocate(int capacity) {
+        if (ids == null) {
+            ids = new String[capacity];
+            names = new String[capacity];
+            distances = new float[capacity];
+            ratings = new float[capacity];
+            priceLevels = new byte[capacity];
+            latitudes = new float[capacity];
+            longitudes = new float[capacity];
+            return;
+        }
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        priceLevels = Arrays.copyOf(priceLevels, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.tel05.bitesizeapp;
+
+import com.google.gson.Gson;
+import com.google.maps.GeoApiContext;
+import com.google.maps.errors.OverQueryLimitException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class serves restaurant searches over HTTP, so one JVM (and one GeoApiContext with its caches)
+ * serves every user. Each request runs on its own virtual thread.
+ * <p>
+ * {@code GET /search?zip=60647&sort=rating&k=10} returns the k nearest restaurants in the given order
+ * (distance, rating, price, best or name; distance by default) as JSON. Invalid parameters get a
+ * 400 response with an {@code error} message.
+ * <p>
+ * Run it with {@code java ... com.github.tel05.bitesizeapp.SearchServer [port]} (8080 by default).
+ * Set {@code -Dbitesize.sampleData=true} to serve the sample data instead of the Places API.
+ */
+public class SearchServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_RESULTS = 10;
+    public static final int MAX_RESULTS = 50;
+    private static final Gson GSON = new Gson();
+
+    // JSON shapes of the responses (unknown coordinates are left out rather than sent as NaN)
+    record RestaurantJson(String id, String name, String address, String phoneNumber,
+                          float distance, float rating, int priceLevel, Double latitude, Double longitude) { }
+    record SearchJson(String zip, Double latitude, Double longitude, String sort, List<RestaurantJson> results) { }
+    record ErrorJson(String error) { }
+
+    private final SearchService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server for the given search service. It doesn't accept requests until started.
+     * @param service the search service shared by all requests
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public SearchServer(SearchService service, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/search", this::handleSearch);
+    }
+
+    /** Starts accepting requests. */
+    public void start() { server.start(); }
+
+    /** Returns the port the server listens on. */
+    public int port() { return server.getAddress().getPort(); }
+
+    /** Stops the server, waiting up to the given number of seconds for requests in progress. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.close();
+    }
+
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                send(exchange, 405, new ErrorJson("Only GET is supported."));
+                return;
+            }
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            String zip = params.get("zip");
+            String sort = params.getOrDefault("sort", "distance");
+            int k;
+            RankedView.Ordering ordering;
+            try {
+                if (zip == null || !ZipCodeValidator.isValidZipCode(zip)) throw new IllegalArgumentException("Invalid zipcode format.");
+                ordering = SearchService.ordering(sort);
+                k = params.containsKey("k") ? Integer.parseInt(params.get("k")) : DEFAULT_RESULTS;
+                if (k < 1 || k > MAX_RESULTS) throw new IllegalArgumentException("k has to be within range: 1 - " + MAX_RESULTS);
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException is an IllegalArgumentException too
+                send(exchange, 400, new ErrorJson(e instanceof NumberFormatException ? "k has to be a number." : e.getMessage()));
+                return;
+            }
+
+            SearchService.Result result = service.search(zip, k);
+            RestaurantStore rows = result.rows();
+            List<RestaurantJson> restaurants = new ArrayList<>();
+            for (int row : result.view().get(ordering)) {
+                restaurants.add(new RestaurantJson(rows.id(row), rows.name(row), rows.address(row), rows.phoneNumber(row),
+                        rows.distance(row), rows.rating(row), rows.priceLevel(row),
+                        rows.hasLocation(row) ? (double) rows.latitude(row) : null,
+                        rows.hasLocation(row) ? (double) rows.longitude(row) : null));
+            }
+            double[] latLong = result.latLong();
+            send(exchange, 200, new SearchJson(zip, latLong != null ? latLong[0] : null,
+                    latLong != null ? latLong[1] : null, sort, restaurants));
+        } catch (RuntimeException e) {
+            System.out.println("Error handling search request: " + e.getMessage());
+            send(exchange, 500, new ErrorJson("Search failed."));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] json = GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        // One context, rate limiter and set of caches shared by every request
+        GeoApiContext context = new GeoApiContext.Builder()
+                .apiKey(System.getenv("GOOGLE_API_KEY"))
+                .setIfExceptionIsAllowedToRetry(OverQueryLimitException.class, false)
+                .build();
+        ApiRateLimiter limiter = new ApiRateLimiter();
+        ZipCodeCache zipCache = null;
+        try {
+            zipCache = ZipCodeCache.open(ZipCodeCache.DEFAULT_FILE, ZipCodeCache.DEFAULT_TTL);
+        } catch (IOException e) {
+            // e.g. the CLI has it open: geocoding then uses the centroids and the API only
+            System.out.println("Could not open zip code cache: " + e.getMessage());
+        }
+        Geocoding geocoder = new Geocoding(context, zipCache, ZipCentroidIndex.loadDefault(), limiter);
+        NearbySearchCache nearbyCache = new NearbySearchCache(1024, Duration.ofMinutes(30));
+        Metrics.registerMBeans();
+        if (zipCache != null) Metrics.registerCache("zipcodes", zipCache::hitCount, zipCache::missCount, zipCache::size);
+        Metrics.registerCache("nearby", nearbyCache::hitCount, nearbyCache::missCount, nearbyCache::size);
+        NearbyRestaurants nearby = new NearbyRestaurants(context, NearbyRestaurants.DEFAULT_MAX_CONCURRENT_DETAILS, nearbyCache, limiter);
+        SearchService.RestaurantSource source = Boolean.getBoolean("bitesize.sampleData")
+                ? SearchService.sampleData() : SearchService.places(nearby);
+
+        SearchServer server = new SearchServer(new SearchService(geocoder, source), port);
+        ZipCodeCache openedCache = zipCache;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            try {
+                if (openedCache != null) openedCache.close();
+            } catch (IOException e) {
+                System.out.println("Could not save zip code cache: " + e.getMessage());
+            }
+            context.shutdown();
+        }));
+        server.start();
+        System.out.println("Bite-size search server listening on port " + server.port());
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.Arrays;
+
+/**
+ * This class runs a restaurant search: geocode the ZIP code, fetch the restaurants around it,
+ * and rank the nearest ones. It holds no per-search state, so one instance (with one
+ * GeoApiContext and its caches behind it) serves every user, from the CLI or the HTTP server.
+ */
+public class SearchService {
+
+    /** Finds the restaurants around a location. */
+    public interface RestaurantSource {
+        /**
+         * @param latLong coordinates of the user, null if the ZIP code could not be geocoded
+         * @return the restaurants found, empty if there are none
+         */
+        RestaurantStore find(double[] latLong);
+    }
+
+    /**
+     * The result of a search.
+     * @param zipcode the ZIP code searched
+     * @param latLong its coordinates, null if it could not be geocoded
+     * @param rows the restaurants ranked, in ID order: around a location the nearest ones,
+     *             with their distance from it, otherwise all the restaurants found
+     * @param view the nearest restaurants, in any ordering
+     */
+    public record Result(String zipcode, double[] latLong, RestaurantStore rows, RankedView view) { }
+
+    private final Geocoding geocoder;
+    private final RestaurantSource source;
+
+    public SearchService(Geocoding geocoder, RestaurantSource source) {
+        this.geocoder = geocoder;
+        this.source = source;
+    }
+
+    /** Returns a source that searches the Places API. */
+    public static RestaurantSource places(NearbyRestaurants nearby) {
+        return latLong -> latLong == null ? new RestaurantStore() : nearby.getNearbyRestaurantStore(latLong[0], latLong[1]);
+    }
+
+    /** Returns a source that always returns the sample data of {@link RestaurantData}. */
+    public static RestaurantSource sampleData() {
+        return dataset(RestaurantStore.of(RestaurantData.getData()));
+    }
+
+    /**
+     * Returns a source that always returns the same rows, e.g. a dataset loaded with {@link RestaurantIngest}
+     * or from a {@link RestaurantSnapshot}. The rows are put in ID order (and trimmed) once, so every
+     * search shares the store, reading its columns without changing it, and its spatial index, which
+     * is built by the first search.
+     * @param rows the dataset, which must not be modified afterwards
+     */
+    public static RestaurantSource dataset(RestaurantStore rows) {
+        RestaurantStore sorted = rows.inIdOrder();
+        return latLong -> sorted;
+    }
+
+    /**
+     * Returns the ordering with the given name: distance, rating, price, best or name.
+     * @throws IllegalArgumentException if the name is not one of these
+     */
+    public static RankedView.Ordering ordering(String name) {
+        return switch (name) {
+            case "distance" -> RankedView.By.DISTANCE;
+            case "rating" -> RankedView.By.RATING;
+            case "price" -> RankedView.By.PRICE_LEVEL;
+            case "best" -> WeightedScore.BALANCED;
+            case "name" -> RankedView.By.NAME;
+            default -> throw new IllegalArgumentException("Unknown sort option: " + name);
+        };
+    }
+
+    /**
+     * Gets the coordinates of a ZIP code.
+     * @return {latitude, longitude}, or null if the ZIP code could not be geocoded
+     */
+    public double[] geocode(String zipcode) {
+        return geocoder.getLatLongByZipCode(zipcode);
+    }
+
+    /**
+     * Searches around a ZIP code.
+     * @param zipcode the ZIP code (5 digits or 5+4 format)
+     * @param k number of nearest restaurants to rank
+     * @throws IllegalArgumentException if the ZIP code is not valid or k is negative
+     */
+    public Result search(String zipcode, int k) {
+        if (!ZipCodeValidator.isValidZipCode(zipcode)) throw new IllegalArgumentException("Invalid zipcode format.");
+        return search(zipcode, geocode(zipcode), k);
+    }
+
+    /**
+     * Searches around a ZIP code that was already geocoded.
+     * @param zipcode the ZIP code
+     * @param latLong its coordinates, null if it could not be geocoded
+     * @param k number of nearest restaurants to rank
+     * @throws IllegalArgumentException if k is negative
+     */
+    public Result search(String zipcode, double[] latLong, int k) {
+        if (k < 0) throw new IllegalArgumentException("k cannot be negative.");
+        // Rows in ID order: ranking works on int row handles, and rows in ID order make
+        // its tiebreaker (by position) the same as breaking ties by ID.
+        RestaurantStore rows = source.find(latLong).inIdOrder();
+
+        // The nearest restaurants are the candidates of every ordering. Around a location they are
+        // copied with their distance from it, so every ordering ranks and shows that distance.
+        long start = System.nanoTime();
+        int found = rows.size();
+        if (latLong != null && rows.allHaveLocation()) {
+            // Handles sorted in a store in ID order keep the candidates in ID order
+            int[] byId = rows.spatialIndex().nearest(latLong[0], latLong[1], k);
+            Arrays.sort(byId);
+            float[] lats = new float[byId.length];
+            float[] lngs = new float[byId.length];
+            for (int i = 0; i < byId.length; i++) {
+                lats[i] = rows.latitude(byId[i]);
+                lngs[i] = rows.longitude(byId[i]);
+            }
+            float[] miles = new float[byId.length];
+            DistanceKernel.distances(latLong[0], latLong[1], lats, lngs, miles, DistanceKernel.Mode.HAVERSINE);
+            rows = rows.select(byId, miles);
+        }
+        int[] nearest = Ranking.smallest(rows.distanceColumn(), k);
+        Metrics.recordSearch(found, System.nanoTime() - start);
+        return new Result(zipcode, latLong, rows, new RankedView(rows, nearest));
+    }
+}
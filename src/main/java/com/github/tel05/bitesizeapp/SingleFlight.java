@@ -0,0 +1,57 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * This class coalesces concurrent identical calls: while a call for a key is in flight, further calls
+ * for the same key don't start another one, they wait for the same result. Once the call completes,
+ * the key is released and the next call starts a new one (results are not cached here).
+ * <p>
+ * Every caller gets its own copy of the shared future, so one caller cancelling its future
+ * doesn't cancel the call for the others.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder saved = new LongAdder();
+
+    /**
+     * Runs the call for a key, or joins the call already in flight for it.
+     *
+     * @param key identifies identical calls
+     * @param call starts the call; only invoked when no call for the key is in flight
+     * @return a future of the call's result
+     */
+    public CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> shared = inFlight.get(key);
+        if (shared != null) {
+            saved.increment();
+            return shared.copy();
+        }
+        CompletableFuture<V> placeholder = new CompletableFuture<>();
+        shared = inFlight.putIfAbsent(key, placeholder);
+        if (shared != null) {
+            saved.increment();
+            return shared.copy();
+        }
+        try {
+            call.get().whenComplete((value, failure) -> {
+                inFlight.remove(key, placeholder);
+                if (failure != null) placeholder.completeExceptionally(failure);
+                else placeholder.complete(value);
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, placeholder);
+            placeholder.completeExceptionally(e);
+        }
+        return placeholder.copy();
+    }
+
+    /** Returns how many calls were saved by joining a call already in flight. */
+    public long savedCalls() { return saved.sum(); }
+
+    /** Returns the number of calls in flight. */
+    public int inFlightCount() { return inFlight.size(); }
+}
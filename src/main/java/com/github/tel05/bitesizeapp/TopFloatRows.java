@@ -0,0 +1,104 @@
+package com.github.tel05.bitesizeapp;
+
+/**
+ *  The {@code TopFloatRows} class selects the k best rows by a primitive float key, the heap behind
+ *  {@link Ranking} and {@link WeightedScore}. Like {@link TopK}, it keeps only a k-sized binary heap
+ *  whose root is the worst row kept so far, so once the heap is full a row that isn't better than the
+ *  root is rejected with a single comparison; keys and row handles are kept in parallel primitive
+ *  arrays, so nothing is boxed and memory is proportional to k, not to the number of rows.
+ *  <p>
+ *  Rows with equal keys are ordered by row handle: lower first for {@link #smallest} and higher first
+ *  for {@link #largest}. Each selection adds its inserts and deletes to {@link Metrics#HEAP_OPERATIONS}
+ *  once, when it is drained.
+ *  <p>
+ *  The heap is zero-based: the children of node i are 2i + 1 and 2i + 2.
+ */
+final class TopFloatRows {
+    private final int k;
+    private final boolean smallest; // keeps the smallest keys (the root is the largest kept)
+    private final float[] key;
+    private final int[] row;
+    private int n;
+    private long operations;
+
+    private TopFloatRows(int k, boolean smallest) {
+        if (k < 0) throw new IllegalArgumentException("k cannot be negative.");
+        this.k = k;
+        this.smallest = smallest;
+        this.key = new float[k];
+        this.row = new int[k];
+    }
+
+    /** Creates a selector that keeps the k rows with the smallest keys. */
+    static TopFloatRows smallest(int k) {
+        return new TopFloatRows(k, true);
+    }
+
+    /** Creates a selector that keeps the k rows with the largest keys. */
+    static TopFloatRows largest(int k) {
+        return new TopFloatRows(k, false);
+    }
+
+    /** Offers a row with its key. */
+    void offer(float rowKey, int handle) {
+        if (n < k) {
+            key[n] = rowKey;
+            row[n] = handle;
+            swim(n++);
+            operations++;
+        } else if (k > 0 && worse(key[0], row[0], rowKey, handle)) {
+            key[0] = rowKey;
+            row[0] = handle;
+            sink(0);
+            operations += 2; // the root is deleted and the row inserted
+        }
+    }
+
+    /** Empties the selector and returns the rows kept, best first. */
+    int[] drain() {
+        int[] result = new int[n];
+        operations += n;
+        for (int r = n - 1; r >= 0; r--) {
+            result[r] = row[0];
+            n--;
+            key[0] = key[n];
+            row[0] = row[n];
+            sink(0);
+        }
+        Metrics.HEAP_OPERATIONS.add(operations);
+        operations = 0;
+        return result;
+    }
+
+    /* *********************************************************************
+     * Helper functions for the heap of (key, row).
+     **********************************************************************/
+
+    // For the smallest keys a larger key is worse, and on equal keys the higher row;
+    // for the largest keys a smaller key is worse, and on equal keys the lower row
+    private boolean worse(float k1, int r1, float k2, int r2) {
+        return smallest ? k1 > k2 || (k1 == k2 && r1 > r2) : k1 < k2 || (k1 == k2 && r1 < r2);
+    }
+
+    private void swim(int i) {
+        while (i > 0 && worse(key[i], row[i], key[(i - 1) / 2], row[(i - 1) / 2])) {
+            exch(i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void sink(int i) {
+        while (2 * i + 1 < n) {
+            int j = 2 * i + 1;
+            if (j + 1 < n && worse(key[j + 1], row[j + 1], key[j], row[j])) j++;
+            if (!worse(key[j], row[j], key[i], row[i])) break;
+            exch(i, j);
+            i = j;
+        }
+    }
+
+    private void exch(int i, int j) {
+        float t = key[i]; key[i] = key[j]; key[j] = t;
+        int r = row[i]; row[i] = row[j]; row[j] = r;
+    }
+}
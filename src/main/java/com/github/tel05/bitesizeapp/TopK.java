@@ -0,0 +1,115 @@
+package com.github.tel05.bitesizeapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ *  The {@code TopK} class selects the k best items from a stream of candidates.
+ *  It keeps only a k-sized binary heap whose root is the worst item kept so far, so once the
+ *  heap is full a candidate that isn't better than the root is rejected with a single comparison.
+ *  <p>
+ *  Use {@link #smallest} for min-ordered keys (distance, price) and {@link #largest} for
+ *  max-ordered keys (rating). Offering n candidates takes time proportional to n log k in the
+ *  worst case and n when most candidates are rejected; memory is proportional to k.
+ *  <p>
+ *  Like {@link MinPQ}, the heap uses a one-based array to simplify parent and child calculations.
+ */
+public class TopK<K> {
+    private final int k;
+    private final Comparator<? super K> order; // result order, best first
+    private final Object[] heap;               // items at indices 1 to n, worst at the root
+    private int n;
+
+    private TopK(int k, Comparator<? super K> order) {
+        if (k < 0) throw new IllegalArgumentException("k cannot be negative.");
+        this.k = k;
+        this.order = order;
+        this.heap = new Object[k + 1];
+    }
+
+    /** Creates a selector that keeps the k smallest items according to the comparator. */
+    public static <K> TopK<K> smallest(int k, Comparator<? super K> comparator) {
+        return new TopK<>(k, comparator);
+    }
+
+    /** Creates a selector that keeps the k largest items according to the comparator. */
+    public static <K> TopK<K> largest(int k, Comparator<? super K> comparator) {
+        return new TopK<>(k, comparator.reversed());
+    }
+
+    /**
+     * Offers a candidate.
+     * @return true if the candidate is among the k best seen so far
+     */
+    public boolean offer(K item) {
+        if (n < k) {
+            heap[++n] = item;
+            swim(n);
+            return true;
+        }
+        if (k == 0 || order.compare(item, item(1)) >= 0) return false;
+        heap[1] = item;
+        sink(1);
+        return true;
+    }
+
+    /** Offers every candidate of the iterable. */
+    public void offerAll(Iterable<? extends K> items) {
+        for (K item : items) offer(item);
+    }
+
+    /** Returns the number of items kept (at most k). */
+    public int size() { return n; }
+
+    /** Returns the maximum number of items kept. */
+    public int capacity() { return k; }
+
+    /**
+     * Returns the items kept, best first. The selector is left unchanged,
+     * so more candidates can be offered afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    public List<K> toList() {
+        K[] items = (K[]) Arrays.copyOfRange(heap, 1, n + 1);
+        Arrays.sort(items, order);
+        return new ArrayList<>(Arrays.asList(items));
+    }
+
+    /* *********************************************************************
+     * Helper functions to restore the heap invariant (worst item at the root).
+     **********************************************************************/
+
+    private void swim(int i) {
+        while (i > 1 && better(i/2, i)) {
+            exch(i, i/2);
+            i = i/2;
+        }
+    }
+
+    private void sink(int i) {
+        while (2*i <= n) {
+            int j = 2*i;
+            if (j < n && better(j, j+1)) j++;
+            if (!better(i, j)) break;
+            exch(i, j);
+            i = j;
+        }
+    }
+
+    private boolean better(int i, int j) {
+        return order.compare(item(i), item(j)) < 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K item(int i) {
+        return (K) heap[i];
+    }
+
+    private void exch(int i, int j) {
+        Object swap = heap[i];
+        heap[i] = heap[j];
+        heap[j] = swap;
+    }
+}
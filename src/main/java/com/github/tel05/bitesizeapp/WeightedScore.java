@@ -0,0 +1,75 @@
+package com.github.tel05.bitesizeapp;
+
+/**
+ * This class blends distance, rating and price level into one score and ranks by it, highest first:
+ * <pre>
+ *   score = distanceWeight * (1 - distance / maxDistance)
+ *         + ratingWeight   * (rating - 1) / 4
+ *         - priceWeight    * priceLevel / 4
+ * </pre>
+ * where maxDistance is the largest distance among the rows being ranked, so each term is between 0 and 1
+ * and the weights say how much each one counts.
+ * <p>
+ * Scores are computed in one loop over the store's primitive columns and only the k best rows are kept,
+ * in a k-sized heap whose root is the worst row kept, so ranking n rows takes time proportional to
+ * n log k and memory proportional to k.
+ * Rows with equal scores are ordered by row handle (higher first), like {@link RankedView.By#RATING}.
+ *
+ * @param distanceWeight weight of being close
+ * @param ratingWeight weight of a high rating
+ * @param priceWeight weight of a low price level
+ */
+public record WeightedScore(float distanceWeight, float ratingWeight, float priceWeight) implements RankedView.Ordering {
+
+    /** Closeness and rating count the same, price level half as much. */
+    public static final WeightedScore BALANCED = new WeightedScore(1f, 1f, 0.5f);
+
+    public WeightedScore {
+        if (!(distanceWeight >= 0 && ratingWeight >= 0 && priceWeight >= 0)) {
+            throw new IllegalArgumentException("Weights have to be non-negative numbers.");
+        }
+    }
+
+    /**
+     * Returns the k rows of the store with the highest scores, highest first.
+     * @param rows the store to rank
+     * @param k maximum number of rows to return
+     */
+    public int[] top(RestaurantStore rows, int k) {
+        return top(rows, null, rows.size(), k);
+    }
+
+    /** Orders the candidates by score, highest first. */
+    @Override
+    public int[] rank(RestaurantStore rows, int[] candidates) {
+        return top(rows, candidates, candidates.length, candidates.length);
+    }
+
+    // Scores the given rows (every row when candidates is null) and keeps the k best in a
+    // TopFloatRows heap whose root is the worst row kept, so memory is proportional to k
+    private int[] top(RestaurantStore rows, int[] candidates, int count, int k) {
+        if (k < 0) throw new IllegalArgumentException("k cannot be negative.");
+        k = Math.min(k, count);
+        float[] distances = rows.distanceColumn();
+        float[] ratings = rows.ratingColumn();
+        byte[] priceLevels = rows.priceLevelColumn();
+
+        float maxDistance = 0;
+        for (int c = 0; c < count; c++) {
+            int i = candidates == null ? c : candidates[c];
+            maxDistance = Math.max(maxDistance, distances[i]);
+        }
+        // With every distance 0, all rows are equally close
+        float closeness = maxDistance > 0 ? distanceWeight / maxDistance : 0;
+        float base = distanceWeight - ratingWeight / 4;
+        float rating = ratingWeight / 4;
+        float price = priceWeight / 4;
+
+        TopFloatRows kept = TopFloatRows.largest(k);
+        for (int c = 0; c < count; c++) {
+            int i = candidates == null ? c : candidates[c];
+            kept.offer(base - closeness * distances[i] + rating * ratings[i] - price * priceLevels[i], i);
+        }
+        return kept.drain();
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.tel05.bitesizeapp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * This class resolves 5-digit ZIP codes to their centroid without any network call.
+ * The centroids are loaded from a CSV dataset ("zip,lat,lng" per line, '#' starts a comment line)
+ * into sorted primitive arrays and looked up by binary search. ZIP+4 codes resolve to the
+ * centroid of their 5-digit ZIP.
+ * <p>
+ * The bundled {@code zip_centroids.csv} resource only holds the ZIP code of the sample data (60647),
+ * so by default every other ZIP code is a miss and geocoding falls back to the cache and the API.
+ * A full dataset (for example the Census Bureau's ZCTA gazetteer file, reduced to those three columns)
+ * is used instead by setting the {@code bitesize.zipCentroids} system property to its path.
+ */
+public class ZipCentroidIndex {
+    public static final String RESOURCE = "/zip_centroids.csv";
+    public static final String PATH_PROPERTY = "bitesize.zipCentroids";
+
+    private final int[] zip;    // sorted ascending
+    private final float[] lat;  // lat[i] is the latitude of zip[i]
+    private final float[] lng;  // lng[i] is the longitude of zip[i]
+
+    private ZipCentroidIndex(int[] zip, float[] lat, float[] lng) {
+        this.zip = zip;
+        this.lat = lat;
+        this.lng = lng;
+    }
+
+    /** Returns an index that knows no ZIP codes. */
+    public static ZipCentroidIndex empty() {
+        return new ZipCentroidIndex(new int[0], new float[0], new float[0]);
+    }
+
+    /**
+     * Loads the dataset named by the {@code bitesize.zipCentroids} system property,
+     * or the bundled resource if the property is not set.
+     *
+     * @return the loaded index (empty if there is no bundled resource)
+     * @throws IOException if the dataset cannot be read
+     */
+    public static ZipCentroidIndex loadDefault() throws IOException {
+        String path = System.getProperty(PATH_PROPERTY);
+        if (path != null) {
+            try (Reader reader = Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8)) {
+                return load(reader);
+            }
+        }
+        InputStream in = ZipCentroidIndex.class.getResourceAsStream(RESOURCE);
+        if (in == null) return empty();
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Loads an index from CSV rows of "zip,lat,lng". A first row that does not start with a digit
+     * is treated as a header; blank lines and lines starting with '#' are skipped.
+     *
+     * @param reader the CSV source
+     * @return the loaded index
+     * @throws IOException if reading fails or a row is malformed
+     */
+    public static ZipCentroidIndex load(Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+        int n = 0;
+        int[] zips = new int[1024];
+        float[] lats = new float[1024];
+        float[] lngs = new float[1024];
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') continue;
+            if (n == 0 && !Character.isDigit(line.charAt(0))) continue; // header row
+            int first = line.indexOf(',');
+            int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+            if (second < 0) throw new IOException("Malformed zip centroid row at line " + lineNumber + ": " + line);
+            int key = ZipCodeValidator.toKey(line.substring(0, first).trim());
+            if (key < 0 || key >= 100_000) throw new IOException("Invalid zipcode at line " + lineNumber + ": " + line);
+            if (n == zips.length) {
+                zips = Arrays.copyOf(zips, n * 2);
+                lats = Arrays.copyOf(lats, n * 2);
+                lngs = Arrays.copyOf(lngs, n * 2);
+            }
+            try {
+                zips[n] = key;
+                lats[n] = Float.parseFloat(line.substring(first + 1, second).trim());
+                lngs[n] = Float.parseFloat(line.substring(second + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid coordinates at line " + lineNumber + ": " + line, e);
+            }
+            n++;
+        }
+        return sorted(zips, lats, lngs, n);
+    }
+
+    // Sorts the first n rows by ZIP (keeping the last row of any duplicate ZIP) and trims the arrays
+    private static ZipCentroidIndex sorted(int[] zips, float[] lats, float[] lngs, int n) {
+        // pack (zip, row) into a long so one primitive sort orders the rows by ZIP, then by row
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) order[i] = ((long) zips[i] << 32) | i;
+        Arrays.sort(order);
+
+        int[] zip = new int[n];
+        float[] lat = new float[n];
+        float[] lng = new float[n];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            int row = (int) order[i];
+            if (size > 0 && zip[size - 1] == zips[row]) size--; // a later row for the same ZIP wins
+            zip[size] = zips[row];
+            lat[size] = lats[row];
+            lng[size] = lngs[row];
+            size++;
+        }
+        return new ZipCentroidIndex(Arrays.copyOf(zip, size), Arrays.copyOf(lat, size), Arrays.copyOf(lng, size));
+    }
+
+    /**
+     * Returns the centroid of a ZIP code.
+     *
+     * @param zipcode the ZIP code (5 digits or 5+4 format)
+     * @return a new {latitude, longitude} array, or null if the ZIP is invalid or not in the dataset
+     */
+    public double[] lookup(String zipcode) {
+        int key = ZipCodeValidator.toKey(zipcode);
+        if (key < 0) return null;
+        if (key >= 100_000) key = (key - 100_000) / 10_000; // ZIP+4 resolves to its 5-digit ZIP
+        int i = Arrays.binarySearch(zip, key);
+        if (i < 0) return null;
+        return new double[]{lat[i], lng[i]};
+    }
+
+    /** Returns the number of ZIP codes in the index. */
+    public int size() { return zip.length; }
+}
@@ -0,0 +1,246 @@
+package com.github.tel05.bitesizeapp;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * This class caches ZIP code coordinates so repeated searches don't call the Geocoding API again.
+ * Entries are kept in primitive arrays in memory and written through to a memory-mapped file,
+ * so the cache is loaded back at startup. Each entry expires after the given time to live.
+ * <p>
+ * File layout: a 16 byte header (magic, version, record count, reserved) followed by
+ * fixed-width 28 byte records (int ZIP key, double latitude, double longitude, long stored-at millis).
+ * <p>
+ * Records are written through the mapping with no coordination between processes, so the file is
+ * locked while a cache has it open: opening a file that another process (e.g. the CLI and the search
+ * server, which share {@link #DEFAULT_FILE}) has open fails, and the caller runs without the cache.
+ */
+public class ZipCodeCache implements AutoCloseable {
+    private static final int MAGIC = 0x42535a43; // "BSZC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 28;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The cache file of the CLI and the search server: ~/.bitesize/zipcodes.cache */
+    public static final Path DEFAULT_FILE = Path.of(System.getProperty("user.home"), ".bitesize", "zipcodes.cache");
+    /** How long a ZIP code is served from the cache by default. */
+    public static final Duration DEFAULT_TTL = Duration.ofDays(30);
+
+    private final FileChannel channel;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private MappedByteBuffer buffer;
+
+    // Records, indexed by their position in the file
+    private int count;
+    private int[] keys;
+    private double[] lats;
+    private double[] lngs;
+    private long[] storedAt;
+
+    // Open addressing hash table from ZIP key to record index + 1 (0 marks an empty slot)
+    private int[] table;
+
+    private long hits;
+    private long misses;
+
+    private ZipCodeCache(FileChannel channel, Duration ttl, LongSupplier clock) {
+        this.channel = channel;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Opens the cache file, creating it if needed, and loads its records into memory.
+     * A file that is not a cache file (or has a different version) is discarded and started over.
+     *
+     * @param file the path of the cache file
+     * @param ttl how long an entry is served before it must be fetched again
+     * @return the opened cache
+     * @throws IOException if the file cannot be opened or mapped, or another process has it open
+     */
+    public static ZipCodeCache open(Path file, Duration ttl) throws IOException {
+        return open(file, ttl, System::currentTimeMillis);
+    }
+
+    // Visible for testing: lets tests control the clock used for expiry
+    static ZipCodeCache open(Path file, Duration ttl, LongSupplier clock) throws IOException {
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("Cache TTL has to be positive.");
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ZipCodeCache cache = new ZipCodeCache(channel, ttl, clock);
+        try {
+            // The lock is released when the channel is closed
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null; // already open in this JVM
+            }
+            if (lock == null) throw new IOException("Zip code cache is in use by another process: " + file);
+            cache.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return cache;
+    }
+
+    // Maps the file and reads back every stored record
+    private void load() throws IOException {
+        int stored = 0;
+        if (channel.size() >= HEADER_BYTES) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION) {
+                stored = header.getInt(8);
+                long available = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+                if (stored < 0 || stored > available) stored = 0;
+            }
+        }
+
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < stored) capacity *= 2;
+        keys = new int[capacity];
+        lats = new double[capacity];
+        lngs = new double[capacity];
+        storedAt = new long[capacity];
+        table = new int[capacity * 2];
+        map(capacity);
+
+        for (int i = 0; i < stored; i++) {
+            int offset = HEADER_BYTES + i * RECORD_BYTES;
+            keys[i] = buffer.getInt(offset);
+            lats[i] = buffer.getDouble(offset + 4);
+            lngs[i] = buffer.getDouble(offset + 12);
+            storedAt[i] = buffer.getLong(offset + 20);
+            tableInsert(keys[i], i);
+        }
+        count = stored;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, count);
+    }
+
+    // (Re)maps the file so it holds the header plus the given number of records
+    private void map(int capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+    }
+
+    /**
+     * Returns the cached coordinates for a ZIP code.
+     * Counts a hit if a fresh entry is found, a miss otherwise.
+     *
+     * @param zipcode the ZIP code to look up
+     * @return a new {latitude, longitude} array, or null if the ZIP is not cached or has expired
+     */
+    public synchronized double[] get(String zipcode) {
+        int record = find(ZipCodeValidator.toKey(zipcode));
+        if (record < 0 || clock.getAsLong() - storedAt[record] >= ttlMillis) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new double[]{lats[record], lngs[record]};
+    }
+
+    /**
+     * Stores the coordinates for a ZIP code, replacing any previous entry, and writes it through to the file.
+     *
+     * @param zipcode the ZIP code
+     * @param latitude the latitude of the ZIP code
+     * @param longitude the longitude of the ZIP code
+     * @throws IllegalArgumentException if the ZIP code is not valid
+     */
+    public synchronized void put(String zipcode, double latitude, double longitude) {
+        int key = ZipCodeValidator.toKey(zipcode);
+        if (key < 0) throw new IllegalArgumentException("Invalid zipcode format: " + zipcode);
+        int record = find(key);
+        if (record < 0) {
+            if (count == keys.length) grow();
+            record = count++;
+            keys[record] = key;
+            tableInsert(key, record);
+            buffer.putInt(8, count);
+        }
+        lats[record] = latitude;
+        lngs[record] = longitude;
+        storedAt[record] = clock.getAsLong();
+
+        int offset = HEADER_BYTES + record * RECORD_BYTES;
+        buffer.putInt(offset, key);
+        buffer.putDouble(offset + 4, latitude);
+        buffer.putDouble(offset + 12, longitude);
+        buffer.putLong(offset + 20, storedAt[record]);
+    }
+
+    /** Returns the number of lookups served from the cache. */
+    public synchronized long hitCount() { return hits; }
+
+    /** Returns the number of lookups that were not cached or had expired. */
+    public synchronized long missCount() { return misses; }
+
+    /** Returns the number of ZIP codes stored (including expired ones not refreshed yet). */
+    public synchronized int size() { return count; }
+
+    /** Flushes the mapped file to disk and closes it. */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /* *********************************************************************
+     * Helper functions for the hash table and growing the storage.
+     **********************************************************************/
+
+    // Returns the record index for the key, or -1 if it is not stored
+    private int find(int key) {
+        if (key < 0) return -1;
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int record = table[slot] - 1;
+            if (keys[record] == key) return record;
+        }
+        return -1;
+    }
+
+    private void tableInsert(int key, int record) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = record + 1;
+    }
+
+    // Doubles the record arrays, the hash table and the mapped file
+    private void grow() {
+        int capacity = keys.length * 2;
+        try {
+            map(capacity);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow zip code cache file.", e);
+        }
+        keys = Arrays.copyOf(keys, capacity);
+        lats = Arrays.copyOf(lats, capacity);
+        lngs = Arrays.copyOf(lngs, capacity);
+        storedAt = Arrays.copyOf(storedAt, capacity);
+        table = new int[capacity * 2];
+        for (int i = 0; i < count; i++) tableInsert(keys[i], i);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
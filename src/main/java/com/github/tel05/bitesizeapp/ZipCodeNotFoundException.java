@@ -0,0 +1,19 @@
+package com.github.tel05.bitesizeapp;
+
+/**
+ * Thrown (or used to complete a future exceptionally) when the Geocoding API
+ * returns no results for a ZIP code.
+ */
+public class ZipCodeNotFoundException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String zipcode;
+
+    public ZipCodeNotFoundException(String zipcode) {
+        super("No results found for zipcode: " + zipcode);
+        this.zipcode = zipcode;
+    }
+
+    /** Returns the ZIP code that was not found. */
+    public String getZipCode() { return zipcode; }
+}
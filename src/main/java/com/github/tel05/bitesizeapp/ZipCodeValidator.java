@@ -6,4 +6,33 @@ public class ZipCodeValidator {
         return zipcode != null && zipcode.matches("^\\d{5}(-\\d{4})?$");
     }
 
+    /**
+     * Packs a ZIP code into an int key without allocating.
+     * 5-digit ZIPs map to themselves (0 - 99999) and ZIP+4 codes map above that range,
+     * so the two forms never collide.
+     *
+     * @param zipcode the ZIP code (5 digits or 5+4 format)
+     * @return the packed key, or -1 if the ZIP code is not valid
+     */
+    public static int toKey(String zipcode) {
+        if (zipcode == null || (zipcode.length() != 5 && zipcode.length() != 10)) return -1;
+        int zip5 = parseDigits(zipcode, 0, 5);
+        if (zip5 < 0 || zipcode.length() == 5) return zip5;
+        if (zipcode.charAt(5) != '-') return -1;
+        int plus4 = parseDigits(zipcode, 6, 10);
+        if (plus4 < 0) return -1;
+        return 100_000 + zip5 * 10_000 + plus4;
+    }
+
+    // Parses the digits in [from, to) or returns -1 if any character is not a digit
+    private static int parseDigits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
 }
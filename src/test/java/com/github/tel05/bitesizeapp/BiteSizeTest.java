@@ -1,8 +1,42 @@
 package com.github.tel05.bitesizeapp;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.gson.JsonObject;
+import com.google.maps.GeoApiContext;
+import com.google.gson.JsonParser;
+import com.google.maps.PendingResult;
+import com.google.maps.errors.OverQueryLimitException;
+import com.google.maps.model.Geometry;
+import com.google.maps.model.LatLng;
+import com.google.maps.model.PlaceDetails;
+import com.google.maps.model.PlaceType;
+import com.google.maps.model.PlacesSearchResponse;
+import com.google.maps.model.PlacesSearchResult;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class BiteSizeTest {
@@ -142,5 +176,765 @@ public class BiteSizeTest {
         assertEquals(restaurant3.getId(), sortedByRating.get(2),"Expected restaurant3 as 3rd highest rated. No tiebreaker. rest3:(id=5 rating=3.5)");
     }
 
-}
+    // Test that ZIP codes are packed into distinct keys and invalid ones are rejected
+    @Test
+    void testZipCodeKeys() {
+        assertEquals(60647, ZipCodeValidator.toKey("60647"), "5-digit ZIPs should map to themselves");
+        assertNotEquals(ZipCodeValidator.toKey("60647"), ZipCodeValidator.toKey("60647-0000"), "ZIP+4 should not collide with the 5-digit ZIP");
+        assertEquals(-1, ZipCodeValidator.toKey("6064"), "Too short ZIP should be rejected");
+        assertEquals(-1, ZipCodeValidator.toKey("60647+1234"), "Wrong separator should be rejected");
+    }
+
+    // Test that cached coordinates survive reopening the cache file and expire after the TTL
+    @Test
+    void testZipCodeCachePersistsAndExpires(@TempDir Path dir) throws IOException {
+        AtomicLong now = new AtomicLong(1_000);
+        Path file = dir.resolve("zipcodes.cache");
+        try (ZipCodeCache cache = ZipCodeCache.open(file, Duration.ofMinutes(1), now::get)) {
+            assertNull(cache.get("60647"), "Empty cache should miss");
+            cache.put("60647", 41.9243, -87.7012);
+            assertThrows(IOException.class, () -> ZipCodeCache.open(file, Duration.ofMinutes(1)),
+                    "The file should be locked while a cache has it open");
+        }
+        try (ZipCodeCache cache = ZipCodeCache.open(file, Duration.ofMinutes(1), now::get)) {
+            assertArrayEquals(new double[]{41.9243, -87.7012}, cache.get("60647"), "Reopened cache should serve stored coordinates");
+            now.addAndGet(Duration.ofMinutes(1).toMillis());
+            assertNull(cache.get("60647"), "Entry should expire after the TTL");
+            assertEquals(1, cache.hitCount());
+            assertEquals(1, cache.missCount());
+        }
+    }
+
+    // Test geohash encoding against a known value and that nearby points share a cell
+    @Test
+    void testGeoHashEncode() {
+        assertEquals("ezs42", GeoHash.encode(42.6, -5.6, 5), "Expected the reference geohash for (42.6, -5.6)");
+        assertEquals(GeoHash.encode(41.9243, -87.7012, 6), GeoHash.encode(41.9245, -87.7010, 6), "Points 30m apart should share a precision 6 cell");
+    }
+
+    // Test that the nearby search cache serves a cell until it expires and evicts the least recently used cell
+    @Test
+    void testNearbySearchCacheTtlAndEviction() {
+        AtomicLong now = new AtomicLong(0);
+        NearbySearchCache cache = new NearbySearchCache(2, Duration.ofMinutes(5), 6, now::get);
+        List<NearbySearchCache.Place> places = List.of(new NearbySearchCache.Place("1", "Longman & Eagle",
+                "2657 N Kedzie Ave, Chicago, IL 60647", "(773)276-7110", 41.9300, -87.7069, 5.0f, 4));
+
+        cache.put(41.9243, -87.7012, 5000, PlaceType.RESTAURANT, places);
+        assertEquals(places, cache.get(41.9245, -87.7010, 5000, PlaceType.RESTAURANT), "Same cell should be served from cache");
+        assertNull(cache.get(41.9243, -87.7012, 1000, PlaceType.RESTAURANT), "Different radius should miss");
+
+        // fill past capacity: the first cell was used last, so the second one is evicted
+        cache.put(40.7128, -74.0060, 5000, PlaceType.RESTAURANT, places);
+        cache.get(41.9243, -87.7012, 5000, PlaceType.RESTAURANT);
+        cache.put(34.0522, -118.2437, 5000, PlaceType.RESTAURANT, places);
+        assertNull(cache.get(40.7128, -74.0060, 5000, PlaceType.RESTAURANT), "Least recently used cell should be evicted");
+
+        now.addAndGet(Duration.ofMinutes(5).toMillis());
+        assertNull(cache.get(41.9243, -87.7012, 5000, PlaceType.RESTAURANT), "Entry should expire after the TTL");
+
+        // the cell key follows the cache's own precision
+        NearbySearchCache coarse = new NearbySearchCache(2, Duration.ofMinutes(5), 4, now::get);
+        assertNotEquals(cache.cellKey(41.9243, -87.7012, 5000, PlaceType.RESTAURANT), cache.cellKey(41.9300, -87.7069, 5000, PlaceType.RESTAURANT));
+        assertEquals(coarse.cellKey(41.9243, -87.7012, 5000, PlaceType.RESTAURANT), coarse.cellKey(41.9300, -87.7069, 5000, PlaceType.RESTAURANT),
+                "Points in the same precision 4 cell should share a key");
+    }
+
+    // Test that the centroid index resolves ZIPs by binary search regardless of input order
+    @Test
+    void testZipCentroidIndexLookup() throws IOException {
+        ZipCentroidIndex index = ZipCentroidIndex.load(new StringReader(
+                "zip,lat,lng\n# comment\n60647,41.9243,-87.7012\n10001,40.7506,-73.9972\n00501,40.8172,-73.0457\n"));
+        assertEquals(3, index.size());
+        assertArrayEquals(new double[]{41.9243f, -87.7012f}, index.lookup("60647"), "Expected the centroid of 60647");
+        assertArrayEquals(new double[]{40.8172f, -73.0457f}, index.lookup("00501"), "Leading zeros should be kept");
+        assertArrayEquals(index.lookup("60647"), index.lookup("60647-1234"), "ZIP+4 should resolve to its 5-digit ZIP");
+        assertNull(index.lookup("99999"), "Unknown ZIP should not resolve");
+    }
 
+    // Test that a batch geocode normalizes, dedupes and serves ZIPs from the local sources
+    @Test
+    void testGeocodeAllDedupesAndServesLocally(@TempDir Path dir) throws IOException {
+        ZipCentroidIndex index = ZipCentroidIndex.load(new StringReader("60647,41.9243,-87.7012\n"));
+        try (ZipCodeCache zipCache = ZipCodeCache.open(dir.resolve("zip.cache"), Duration.ofDays(1))) {
+            zipCache.put("10001", 40.7506, -73.9972);
+            Geocoding geocoding = new Geocoding(null, zipCache, index);
+            GeocodeTable table = geocoding.geocodeAll(List.of(" 60647", "10001", "60647 ", "6064a", "60647-1234"), 2);
+
+            assertEquals(3, table.size(), "Duplicates should be looked up once");
+            assertEquals(1, table.rejectedCount(), "Invalid ZIP should be dropped");
+            assertEquals(3, table.resolvedCount());
+            int row = table.indexOf("10001");
+            assertEquals("10001", table.zipCode(row));
+            assertEquals(40.7506, table.latitude(row), 1e-9, "Expected the cached latitude");
+            assertEquals(41.9243f, table.latitude(table.indexOf("60647-1234")), 1e-9, "ZIP+4 should resolve to its centroid");
+            assertEquals(-1, table.indexOf("99999"));
+        }
+    }
+
+    // Pending request that answers from setCallback right away, like a client response arriving
+    private static <T> PendingResult<T> pendingResult(T result, Throwable failure, AtomicBoolean cancelled) {
+        return new PendingResult<>() {
+            @Override
+            public void setCallback(Callback<T> callback) {
+                if (failure != null) callback.onFailure(failure);
+                else if (result != null) callback.onResult(result);
+            }
+            @Override
+            public T await() { throw new UnsupportedOperationException(); }
+            @Override
+            public T awaitIgnoreError() { throw new UnsupportedOperationException(); }
+            @Override
+            public void cancel() { cancelled.set(true); }
+        };
+    }
+
+    // Test that ApiFutures completes from the client callback and keeps the failure type
+    @Test
+    void testApiFuturesCompleteFromCallback() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        assertEquals("ok", ApiFutures.of(pendingResult("ok", null, cancelled)).join());
+
+        CompletableFuture<String> failed = ApiFutures.of(pendingResult(null, new OverQueryLimitException("quota"), cancelled));
+        ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(OverQueryLimitException.class, e.getCause(), "Failure should keep its type");
+
+        CompletableFuture<String> pending = ApiFutures.of(pendingResult(null, null, cancelled));
+        pending.cancel(true);
+        assertTrue(cancelled.get(), "Cancelling the future should cancel the request");
+    }
+
+    // Test that the ranked view builds each ordering on first request and reuses it afterwards
+    @Test
+    void testRankedViewMemoizesOrderings() {
+        Restaurant[] sortedById = restaurantMap.values().toArray(new Restaurant[0]);
+        Arrays.sort(sortedById, Comparator.comparing(Restaurant::getId));
+        RestaurantStore rows = RestaurantStore.of(sortedById);
+        RankedView view = new RankedView(rows, Ranking.smallest(rows.distanceColumn(), 4));
+
+        assertFalse(view.isComputed(RankedView.By.RATING), "Orderings should not be built up front");
+        int[] byRating = view.get(RankedView.By.RATING);
+        assertSame(byRating, view.get(RankedView.By.RATING), "Second request should reuse the ordering");
+        assertFalse(view.isComputed(RankedView.By.PRICE_LEVEL));
+
+        // nearest 4: "1" (0.1), "2" (0.1), "10" (0.2), "9" (0.3)
+        assertEquals(List.of("1", "2", "10", "9"), Arrays.stream(view.get(RankedView.By.DISTANCE)).mapToObj(rows::id).toList());
+        assertEquals(List.of("1", "2", "9", "10"), Arrays.stream(byRating).mapToObj(rows::id).toList());
+        assertEquals(List.of("2", "9", "1", "10"), Arrays.stream(view.get(RankedView.By.PRICE_LEVEL)).mapToObj(rows::id).toList());
+        assertEquals(List.of("Cafe Con Leche", "Chiqueolatte Chicago", "Longman & Eagle", "Same Day Cafe"),
+                Arrays.stream(view.get(RankedView.By.NAME)).mapToObj(rows::name).toList());
+    }
+
+    // Test that weighted top-K matches sorting every row by its score
+    @Test
+    void testWeightedScoreTopKMatchesFullSort() {
+        Random random = new Random(11);
+        int n = 5000;
+        RestaurantStore rows = new RestaurantStore(n);
+        for (int i = 0; i < n; i++) {
+            rows.add("id" + i, "Restaurant " + i, "2657 N Kedzie Ave, Chicago, IL 60647", "(773)276-7110",
+                    random.nextInt(300) / 100f, 1 + random.nextInt(41) / 10f, random.nextInt(5), Double.NaN, Double.NaN);
+        }
+        WeightedScore weights = new WeightedScore(1f, 2f, 0.5f);
+        float maxDistance = 0;
+        for (int i = 0; i < n; i++) maxDistance = Math.max(maxDistance, rows.distance(i));
+        float[] expectedScores = new float[n];
+        for (int i = 0; i < n; i++) {
+            expectedScores[i] = 1f * (1 - rows.distance(i) / maxDistance) + 2f * (rows.rating(i) - 1) / 4 - 0.5f * rows.priceLevel(i) / 4;
+        }
+        int[] top = weights.top(rows, 20);
+        assertEquals(20, top.length);
+        for (int r = 1; r < top.length; r++) {
+            assertTrue(expectedScores[top[r - 1]] >= expectedScores[top[r]] - 1e-5f, "Scores should not increase");
+        }
+        int better = 0;
+        for (int i = 0; i < n; i++) if (expectedScores[i] > expectedScores[top[top.length - 1]] + 1e-5f) better++;
+        assertTrue(better < 20, "No row outside the top 20 should score clearly higher");
+
+        // ranking a candidate set reorders exactly those candidates
+        int[] candidates = {3, 1, 4, 1000, 59};
+        int[] ranked = weights.rank(rows, candidates);
+        int[] sortedCandidates = candidates.clone();
+        Arrays.sort(sortedCandidates);
+        Arrays.sort(ranked);
+        assertArrayEquals(sortedCandidates, ranked);
+        assertThrows(IllegalArgumentException.class, () -> new WeightedScore(-1f, 1f, 1f));
+    }
+
+    // Test that the search server answers JSON searches and rejects bad parameters
+    @Test
+    void testSearchServerReturnsJson() throws Exception {
+        ZipCentroidIndex index = ZipCentroidIndex.load(new StringReader("60647,41.9243,-87.7012\n"));
+        SearchService service = new SearchService(new Geocoding(null, null, index), SearchService.sampleData());
+        SearchServer server = new SearchServer(service, 0);
+        server.start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            String base = "http://localhost:" + server.port() + "/search";
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "?zip=60647&sort=rating&k=3")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
+            assertEquals(41.9243f, json.get("latitude").getAsDouble(), 1e-9);
+            List<String> ids = new ArrayList<>();
+            json.getAsJsonArray("results").forEach(r -> ids.add(r.getAsJsonObject().get("id").getAsString()));
+            // 3 nearest of the sample data: "1" (0.1), "10" (0.2), "9" (0.3); by rating: 5.0, 4.0, 2.9
+            assertEquals(List.of("1", "10", "9"), ids);
+
+            HttpResponse<String> bad = client.send(HttpRequest.newBuilder(URI.create(base + "?zip=6064&k=3")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, bad.statusCode());
+            assertEquals("Invalid zipcode format.", JsonParser.parseString(bad.body()).getAsJsonObject().get("error").getAsString());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    // Test that identical calls in flight share one call and the key is released when it completes
+    @Test
+    void testSingleFlightCoalescesCalls() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> response = new CompletableFuture<>();
+        Supplier<CompletableFuture<String>> call = () -> {
+            calls.incrementAndGet();
+            return response;
+        };
+        CompletableFuture<String> first = flights.run("60647", call);
+        CompletableFuture<String> second = flights.run("60647", call);
+        CompletableFuture<String> other = flights.run("10001", () -> CompletableFuture.completedFuture("other"));
+        second.cancel(true);
+        assertFalse(first.isDone(), "Cancelling one caller should not cancel the shared call");
+
+        response.complete("ok");
+        assertEquals("ok", first.join());
+        assertEquals("other", other.join());
+        assertEquals(1, calls.get(), "Identical calls in flight should share one call");
+        assertEquals(1, flights.savedCalls());
+        assertEquals(0, flights.inFlightCount());
+
+        flights.run("60647", call);
+        assertEquals(2, calls.get(), "A completed call should not be reused");
+    }
+
+    // Test that the limiter throttles past the burst and retries quota errors with backoff
+    @Test
+    void testApiRateLimiterThrottlesAndRetries() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ApiRateLimiter limiter = new ApiRateLimiter(20, 20, 20, 3);
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            calls.add(limiter.submit(ApiRateLimiter.Api.GEOCODE, () -> pendingResult("ok", null, cancelled)));
+        }
+        ApiRateLimiter.Stats throttled = limiter.stats(ApiRateLimiter.Api.GEOCODE);
+        assertTrue(throttled.throttled() >= 5, "Requests past the burst should wait for a token");
+        assertTrue(throttled.queueDepth() > 0, "Waiting requests should be counted in the queue depth");
+        calls.forEach(CompletableFuture::join);
+        assertEquals(0, limiter.stats(ApiRateLimiter.Api.GEOCODE).queueDepth());
+        assertEquals(0, limiter.stats(ApiRateLimiter.Api.DETAILS).requests(), "Each API should have its own budget");
+
+        AtomicInteger attempts = new AtomicInteger();
+        String result = limiter.submit(ApiRateLimiter.Api.DETAILS, () -> attempts.incrementAndGet() <= 2
+                ? pendingResult(null, new OverQueryLimitException("quota"), cancelled)
+                : pendingResult("ok", null, cancelled)).join();
+        assertEquals("ok", result);
+        ApiRateLimiter.Stats retried = limiter.stats(ApiRateLimiter.Api.DETAILS);
+        assertEquals(2, retried.quotaErrors());
+        assertEquals(2, retried.retries());
+    }
+
+    // Search page with one result per place ID
+    private static PlacesSearchResponse page(String nextPageToken, String... placeIds) {
+        PlacesSearchResponse page = new PlacesSearchResponse();
+        page.nextPageToken = nextPageToken;
+        page.results = new PlacesSearchResult[placeIds.length];
+        for (int i = 0; i < placeIds.length; i++) {
+            page.results[i] = new PlacesSearchResult();
+            page.results[i].placeId = placeIds[i];
+            page.results[i].name = "Place " + placeIds[i];
+        }
+        return page;
+    }
+
+    private static PlaceDetails details(double lat, double lng) {
+        PlaceDetails details = new PlaceDetails();
+        details.geometry = new Geometry();
+        details.geometry.location = new LatLng(lat, lng);
+        details.formattedAddress = "2657 N Kedzie Ave, Chicago, IL 60647";
+        details.formattedPhoneNumber = "(773)276-7110";
+        details.rating = 4.5f;
+        return details;
+    }
+
+    // Test that details are fetched concurrently, never more than the limit at once, and come back in result order
+    @Test
+    void testFetchDetailsRespectsConcurrencyLimit() {
+        PlacesSearchResult[] results = page(null, "a", "b", "c", "d", "e", "f", "g", "h", "i", "j").results;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Random random = new Random(5);
+        Function<String, CompletableFuture<PlaceDetails>> stub = placeId -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            // responses arrive out of order
+            Executor later = CompletableFuture.delayedExecutor(10 + random.nextInt(20), TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> {
+                inFlight.decrementAndGet();
+                PlaceDetails found = details(41.93, -87.70);
+                found.placeId = placeId;
+                return found;
+            }, later);
+        };
+
+        PlaceDetails[] fetched = NearbyRestaurants.fetchDetails(results, 3, stub).join();
+        assertEquals(3, maxInFlight.get(), "Expected exactly 3 details requests in flight at the peak");
+        assertEquals(List.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j"),
+                Arrays.stream(fetched).map(found -> found.placeId).toList(), "Details should be in result order");
+        assertEquals(0, NearbyRestaurants.fetchDetails(new PlacesSearchResult[0], 3, stub).join().length);
+    }
+
+    // Test that the stream yields every page's restaurants and only follows pages while consumed
+    @Test
+    void testNearbyRestaurantStreamFollowsPagesOnDemand() {
+        AtomicInteger pagesRequested = new AtomicInteger();
+        Function<String, CompletableFuture<PlacesSearchResponse>> nextPage = token -> {
+            pagesRequested.incrementAndGet();
+            return CompletableFuture.completedFuture(page(null, "d", "e"));
+        };
+        Function<String, CompletableFuture<PlaceDetails>> placeDetails = placeId -> {
+            PlaceDetails found = details(41.93, -87.70);
+            if (placeId.equals("unrated")) found.rating = 0; // not rated yet: skipped, not thrown
+            return CompletableFuture.completedFuture(found);
+        };
+
+        NearbyRestaurantStream idle = new NearbyRestaurantStream(41.9243, -87.7012, 2,
+                () -> CompletableFuture.completedFuture(page("token", "a", "b", "c")), nextPage, placeDetails, 0);
+        assertTrue(idle.hasNext());
+        assertEquals(0, pagesRequested.get(), "Next page should wait until the caller consumes");
+        idle.close();
+        assertFalse(idle.hasNext(), "Closed stream should end");
+
+        List<String> ids = new ArrayList<>();
+        try (NearbyRestaurantStream stream = new NearbyRestaurantStream(41.9243, -87.7012, 2,
+                () -> CompletableFuture.completedFuture(page("token", "a", "unrated", "b", "c")), nextPage, placeDetails, 0)) {
+            stream.forEachRemaining(restaurant -> ids.add(restaurant.getId()));
+        }
+        assertEquals(List.of("a", "b", "c", "d", "e"), ids);
+        assertEquals(1, pagesRequested.get(), "Both pages should be read exactly once");
+
+        NearbyRestaurantStream failing = new NearbyRestaurantStream(41.9243, -87.7012, 2,
+                () -> CompletableFuture.completedFuture(page(null, "a")), nextPage,
+                placeId -> CompletableFuture.failedFuture(new OverQueryLimitException("quota")), 0);
+        CompletionException e = assertThrows(CompletionException.class, failing::hasNext);
+        assertInstanceOf(OverQueryLimitException.class, e.getCause());
+    }
+
+    // Great-circle distance in miles, same formula as NearbyRestaurants
+    private static double haversineMiles(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 3958 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    // Test the batch distance kernel against the haversine distance of NearbyRestaurants:
+    // haversine within 0.01% (+ 1 ft), equirectangular within 0.1% (+ 1 ft) up to 5 km
+    @Test
+    void testDistanceKernelAccuracy() {
+        Random random = new Random(7);
+        double originLat = 41.9243, originLng = -87.7012;
+        int n = 1003;
+        float[] nearLats = new float[n], nearLngs = new float[n], farLats = new float[n], farLngs = new float[n];
+        for (int i = 0; i < n; i++) {
+            // within 5 km (about 0.045 degrees of latitude)
+            nearLats[i] = (float) (originLat + (random.nextDouble() - 0.5) * 0.06);
+            nearLngs[i] = (float) (originLng + (random.nextDouble() - 0.5) * 0.08);
+            farLats[i] = (float) (random.nextDouble() * 160 - 80);
+            farLngs[i] = (float) (random.nextDouble() * 360 - 180);
+        }
+        float[] miles = new float[n];
+        DistanceKernel.distances(originLat, originLng, farLats, farLngs, miles, DistanceKernel.Mode.HAVERSINE);
+        for (int i = 0; i < n; i++) {
+            float expected = NearbyRestaurants.calculateDistance(originLat, originLng, farLats[i], farLngs[i]);
+            assertEquals(expected, miles[i], expected * 1e-4 + 2e-4, "Haversine distance to point " + i);
+        }
+        DistanceKernel.distances(originLat, originLng, nearLats, nearLngs, miles, DistanceKernel.Mode.HAVERSINE);
+        for (int i = 0; i < n; i++) {
+            float expected = NearbyRestaurants.calculateDistance(originLat, originLng, nearLats[i], nearLngs[i]);
+            if (expected > 5 / 1.609344) continue;
+            assertEquals(expected, miles[i], expected * 1e-4 + 2e-4, "Haversine distance to point " + i);
+        }
+        DistanceKernel.distances(originLat, originLng, nearLats, nearLngs, miles, DistanceKernel.Mode.EQUIRECTANGULAR);
+        for (int i = 0; i < n; i++) {
+            float expected = NearbyRestaurants.calculateDistance(originLat, originLng, nearLats[i], nearLngs[i]);
+            if (expected > 5 / 1.609344) continue;
+            assertEquals(expected, miles[i], expected * 1e-3 + 2e-4, "Equirectangular distance to point " + i);
+        }
+    }
+
+    // Test that k-nearest and within-radius queries on the k-d tree match a brute force scan
+    @Test
+    void testKdTreeMatchesBruteForce() {
+        Random random = new Random(42);
+        int n = 2000;
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = 41.6 + random.nextDouble() * 0.6;
+            lngs[i] = -88.0 + random.nextDouble() * 0.6;
+        }
+        KdTree tree = new KdTree(lats, lngs);
+        double qLat = 41.9243, qLng = -87.7012;
+
+        Integer[] byDistance = new Integer[n];
+        for (int i = 0; i < n; i++) byDistance[i] = i;
+        Arrays.sort(byDistance, Comparator.comparingDouble((Integer i) -> haversineMiles(qLat, qLng, lats[i], lngs[i])));
+
+        int[] nearest = tree.nearest(qLat, qLng, 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(byDistance[i].intValue(), nearest[i], "Expected the " + (i + 1) + "th nearest point");
+        }
+
+        int[] within = tree.withinRadius(qLat, qLng, 2.0);
+        long expected = Arrays.stream(byDistance).filter(i -> haversineMiles(qLat, qLng, lats[i], lngs[i]) <= 2.0).count();
+        assertEquals(expected, within.length, "Expected every point within 2 miles");
+        for (int i = 0; i < within.length; i++) {
+            assertEquals(byDistance[i].intValue(), within[i], "Radius results should be nearest first");
+        }
+
+        // A store keeps its index until a row is added
+        RestaurantStore store = new RestaurantStore();
+        store.add("1", "A", "1 Main St", "(773)000-0001", 0.1f, 4.0f, 1, 41.92, -87.70);
+        store.add("2", "B", "2 Main St", "(773)000-0002", 0.2f, 4.0f, 1, 41.93, -87.71);
+        KdTree index = store.spatialIndex();
+        assertSame(index, store.spatialIndex(), "The index should be built once per dataset");
+        store.add("3", "C", "3 Main St", "(773)000-0003", 0.3f, 4.0f, 1, 41.94, -87.72);
+        assertNotSame(index, store.spatialIndex(), "Adding a row should rebuild the index");
+        assertEquals(3, store.spatialIndex().size());
+
+        // A dataset search ranks and shows the distance from the location searched, not the stored one
+        SearchService service = new SearchService(null, SearchService.dataset(store));
+        SearchService.Result result = service.search("60647", new double[]{41.94, -87.72}, 2);
+        int[] closest = result.view().get(RankedView.By.DISTANCE);
+        assertEquals("3", result.rows().id(closest[0]));
+        assertEquals(0f, result.rows().distance(closest[0]), 1e-3f);
+        assertEquals("2", result.rows().id(closest[1]));
+        assertEquals(haversineMiles(41.94, -87.72, 41.93, -87.71), result.rows().distance(closest[1]), 1e-3);
+    }
+
+    // Test that the top-K selector keeps only the K best items, in order, for both directions
+    @Test
+    void testTopKSelection() {
+        Comparator<String> distanceComparator = Comparator.comparing((String id)-> restaurantMap.get(id).getDistance())
+                .thenComparing(id -> restaurantMap.get(id).getId());
+        TopK<String> nearest = TopK.smallest(3, distanceComparator);
+        nearest.offerAll(restaurantMap.keySet());
+        // distances: 1=0.1, 2=0.1, 10=0.2, 9=0.3, 6=0.6, 5=0.7
+        assertEquals(List.of("1", "2", "10"), nearest.toList(), "Expected the 3 nearest with tiebreaker by ID");
+
+        Comparator<String> ratingComparator = Comparator.comparing((String id) -> restaurantMap.get(id).getRating())
+                .thenComparing(id -> restaurantMap.get(id).getId());
+        TopK<String> bestRated = TopK.largest(2, ratingComparator);
+        bestRated.offerAll(restaurantMap.keySet());
+        // ratings: 1=5.0, 6=4.9, 2=4.8, ...
+        assertEquals(List.of("1", "6"), bestRated.toList(), "Expected the 2 highest rated");
+        assertFalse(bestRated.offer("5"), "A lower rated restaurant should be rejected once the selector is full");
+    }
+
+    // Test that ranking by float keys on int positions matches the comparator order (key, then ID)
+    @Test
+    void testRankingOnPositions() {
+        // positions in ID order: "1", "10", "2", "5", "6", "9"
+        String[] ids = restaurantMap.keySet().toArray(new String[0]);
+        Arrays.sort(ids);
+        float[] distances = new float[ids.length];
+        float[] ratings = new float[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            distances[i] = restaurantMap.get(ids[i]).getDistance();
+            ratings[i] = restaurantMap.get(ids[i]).getRating();
+        }
+
+        int[] nearest = Ranking.smallest(distances, 3);
+        assertEquals(List.of("1", "2", "10"), Arrays.stream(nearest).mapToObj(i -> ids[i]).toList(),
+                "Expected the 3 nearest with tiebreaker by ID");
+
+        int[] bestRated = Ranking.largest(ratings, new int[]{1, 3, 5}, 3);
+        // rest5:(id=10 rating=4), rest6:(id=9 rating=4), rest3:(id=5 rating=3.5), same order as testRatingMaxPQ
+        assertEquals(List.of("9", "10", "5"), Arrays.stream(bestRated).mapToObj(i -> ids[i]).toList(),
+                "Expected highest rated first with tiebreaker by ID, like MaxPQ");
+    }
+
+    // Test that the columnar store validates rows like Restaurant and rebuilds equal Restaurant objects
+    @Test
+    void testRestaurantStoreColumns() {
+        RestaurantStore store = RestaurantStore.of(restaurant1, restaurant3);
+        assertEquals(2, store.size());
+        assertArrayEquals(new float[]{0.1f, 0.7f}, store.distanceColumn(), "Distance column should hold one value per row");
+        assertArrayEquals(new byte[]{4, 3}, store.priceLevelColumn(), "Price column should hold one value per row");
+        assertEquals(restaurant3, store.restaurant(1), "Row should rebuild an equal Restaurant");
+        assertThrows(IllegalArgumentException.class, () -> store.add("11", "Bad Rating", "1 Main St", "(773)000-0000",
+                0.5f, 6.0f, 2, Double.NaN, Double.NaN), "Invalid rows should be rejected like the Restaurant constructor");
+        assertEquals(2, store.size(), "Rejected rows should not be stored");
+
+        Restaurant[] data = RestaurantData.getData();
+        RestaurantStore found = RestaurantStore.of(data);
+        found.add("0", "Odd Row", "12 Rue Café, Suite 4", "0044 20 7946 0018", 0.2f, 4.0f, 1, Double.NaN, Double.NaN);
+        RestaurantStore sorted = found.inIdOrder();
+        assertEquals(found.size(), sorted.size());
+        for (int row = 1; row < sorted.size(); row++) {
+            assertTrue(sorted.id(row - 1).compareTo(sorted.id(row)) < 0, "Rows should be in ID order");
+        }
+        assertEquals(found.restaurant(data.length), sorted.restaurant(0), "Copied rows should rebuild equal Restaurants");
+        for (Restaurant restaurant : data) {
+            int row = 0;
+            while (!sorted.id(row).equals(restaurant.getId())) row++;
+            assertEquals(restaurant, sorted.restaurant(row), "Copied rows should rebuild equal Restaurants");
+            assertEquals(restaurant.getAddress(), sorted.address(row));
+            assertEquals(restaurant.getPhoneNum(), sorted.phoneNumber(row));
+        }
+        assertSame(sorted, sorted.inIdOrder(), "Rows already in ID order should not be copied");
+
+        // Reading the columns of a store that still has room left doesn't reallocate it
+        RestaurantStore growing = new RestaurantStore(4);
+        growing.add(restaurant1);
+        growing.add(restaurant3);
+        assertArrayEquals(new float[]{0.1f, 0.7f}, growing.distanceColumn());
+        assertNotSame(growing.distanceColumn(), growing.distanceColumn(), "An untrimmed store should hand out copies");
+        RestaurantStore frozen = growing.inIdOrder();
+        assertSame(growing, frozen);
+        assertSame(frozen.distanceColumn(), frozen.distanceColumn(), "A trimmed store should hand out its own columns");
+    }
+
+    // Test that priority queue iterators walk keys in order without draining the queue, and fail fast
+    @Test
+    void testPQIterators() {
+        MinPQ<Integer> minPQ = new MinPQ<>();
+        MaxPQ<Integer> maxPQ = new MaxPQ<>();
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) keys.add(i);
+        Collections.shuffle(keys, new Random(7));
+        for (int key : keys) {
+            minPQ.insert(key);
+            maxPQ.insert(key);
+        }
+
+        Iterator<Integer> ascending = minPQ.iterator();
+        Iterator<Integer> descending = maxPQ.iterator();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, ascending.next(), "MinPQ iterator should yield keys in ascending order");
+            assertEquals(99 - i, descending.next(), "MaxPQ iterator should yield keys in descending order");
+        }
+        assertFalse(ascending.hasNext());
+        assertEquals(100, minPQ.size(), "Iterating should not remove keys");
+
+        int sum = 0;
+        for (int key : minPQ.unordered()) sum += key;
+        assertEquals(4950, sum, "Unordered view should visit every key once");
+
+        Iterator<Integer> stale = maxPQ.iterator();
+        maxPQ.delMax();
+        assertThrows(ConcurrentModificationException.class, stale::next, "Iterator should fail fast after a modification");
+    }
+
+    // Test that the latency histogram reports percentiles and the metrics are exposed as MBeans
+    @Test
+    void testMetricsHistogramAndMBeans() throws Exception {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) histogram.record(i);
+        assertEquals(1000, histogram.count());
+        assertEquals(1000, histogram.max());
+        assertEquals(500.5, histogram.mean(), 1e-9);
+        // percentiles are bucket upper bounds, at most 12.5% above the exact value
+        assertTrue(histogram.percentile(50) >= 500 && histogram.percentile(50) <= 563, "p50 was " + histogram.percentile(50));
+        assertTrue(histogram.percentile(99) >= 990 && histogram.percentile(99) <= 1114, "p99 was " + histogram.percentile(99));
+
+        Metrics.registerMBeans();
+        Metrics.registerCache("test", () -> 3, () -> 1, () -> 4);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        long heapOperations = (Long) server.getAttribute(new ObjectName("com.github.tel05.bitesizeapp:type=Ranking"), "HeapOperations");
+        // 2 inserts, then 1 replaces the root 3 (a delete and an insert), then 2 deletes for the result
+        Ranking.smallest(new float[]{2, 3, 1}, 2);
+        assertEquals(heapOperations + 6, (Long) server.getAttribute(new ObjectName("com.github.tel05.bitesizeapp:type=Ranking"), "HeapOperations"));
+        assertEquals(0.75, (Double) server.getAttribute(new ObjectName("com.github.tel05.bitesizeapp:type=Cache,name=test"), "HitRatio"), 1e-9);
+
+        long errors = (Long) server.getAttribute(new ObjectName("com.github.tel05.bitesizeapp:type=Api,name=DETAILS"), "ErrorCount");
+        Metrics.recordError(ApiRateLimiter.Api.DETAILS, 1_000_000, new OverQueryLimitException("quota"));
+        assertEquals(errors + 1, (Long) server.getAttribute(new ObjectName("com.github.tel05.bitesizeapp:type=Api,name=DETAILS"), "ErrorCount"));
+    }
+
+    @Test
+    void testLazyGeoApiContextBuildsOnFirstUse() throws IOException {
+        AtomicInteger builds = new AtomicInteger();
+        LazyGeoApiContext context = new LazyGeoApiContext(() -> {
+            builds.incrementAndGet();
+            return new GeoApiContext.Builder().apiKey("AIzaTestKey").build();
+        });
+        // Constructing a geocoder and looking up offline ZIP codes doesn't need the context
+        Geocoding geocoder = new Geocoding(context, null, ZipCentroidIndex.load(new StringReader("60647,41.9243,-87.7012")), ApiRateLimiter.unlimited());
+        assertArrayEquals(new double[]{41.9243, -87.7012}, geocoder.getLatLongByZipCode("60647"), 1e-4);
+        assertFalse(context.isCreated());
+        context.shutdown(); // nothing to shut down yet
+
+        assertSame(context.get(), context.get());
+        assertTrue(context.isCreated());
+        assertEquals(1, builds.get());
+        context.shutdown();
+    }
+
+    // Test that a snapshot reads back the rows it was written from and rejects damaged files
+    @Test
+    void testRestaurantSnapshotRoundTrip(@TempDir Path dir) throws IOException {
+        RestaurantStore store = RestaurantStore.of(RestaurantData.getData());
+        store.add("café-1", "Café Olé 🌮", "2700 N Milwaukee Ave, Chicago, IL 60647", "(773)555-0100", 2.5f, 4.0f, 0, Double.NaN, Double.NaN);
+        Path file = dir.resolve("restaurants.snapshot");
+        RestaurantSnapshot.write(store, file);
+
+        RestaurantSnapshot snapshot = RestaurantSnapshot.open(file);
+        assertEquals(store.size(), snapshot.size());
+        for (int row = 0; row < store.size(); row++) {
+            assertEquals(store.restaurant(row), snapshot.restaurant(row));
+            assertEquals(store.name(row), snapshot.name(row));
+            assertEquals(store.phoneNumber(row), snapshot.phoneNumber(row));
+            assertEquals(store.distance(row), snapshot.distance(row));
+            assertEquals(store.rating(row), snapshot.rating(row));
+            assertEquals(store.priceLevel(row), snapshot.priceLevel(row));
+            assertEquals(store.hasLocation(row), snapshot.hasLocation(row));
+        }
+        assertArrayEquals(store.distanceColumn(), snapshot.toStore().distanceColumn());
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.name(store.size()));
+
+        // Files that aren't complete snapshots are rejected
+        Path truncated = dir.resolve("truncated.snapshot");
+        Files.write(truncated, Arrays.copyOf(Files.readAllBytes(file), (int) Files.size(file) - 1));
+        assertThrows(IOException.class, () -> RestaurantSnapshot.open(truncated));
+        Path other = dir.resolve("other.snapshot");
+        Files.write(other, new byte[64]);
+        assertThrows(IOException.class, () -> RestaurantSnapshot.open(other));
+
+        // A string end outside the heap is reported when the string is read
+        byte[] bytes = Files.readAllBytes(file);
+        int firstEnd = 32 + 16 * store.size() + ((store.size() + 3) & ~3);
+        bytes[firstEnd + 3] = 0x7f;
+        Path corrupt = dir.resolve("corrupt.snapshot");
+        Files.write(corrupt, bytes);
+        RestaurantSnapshot corrupted = RestaurantSnapshot.open(corrupt);
+        assertThrows(IllegalStateException.class, () -> corrupted.id(0));
+
+        // Strings are sized like the JDK encodes them, even an unpaired surrogate
+        Path odd = dir.resolve("odd.snapshot");
+        RestaurantSnapshot.write(RestaurantStore.of(new Restaurant("1", "Bad \uD800 Pair", "1 Main St", "(773)000-0000", 0.1f, 4.0f, 1)), odd);
+        assertEquals("Bad ? Pair", RestaurantSnapshot.open(odd).name(0));
+    }
+
+    // Test that CSV and JSON lines ingest adds the valid rows and reports the invalid ones
+    @Test
+    void testRestaurantIngestSkipsInvalidRows() throws IOException {
+        String csv = "name,id,address,phoneNumber,distance,rating,priceLevel,latitude,longitude\r\n"
+                + "Longman & Eagle,1,\"2657 N Kedzie Ave, Chicago, IL 60647\",(773)276-7110,0.1,5.0,4,41.9294,-87.7074\r\n"
+                + "\"The \"\"Old\"\" Plank\",2,\"2700 N Milwaukee Ave,\nChicago, IL 60647\",(773)661-2190,0.8,3.9,1,,\r\n"
+                + "\r\n"
+                + "Bad Rating,3,1 Main St,(773)000-0000,0.5,7.5,2,,\n"
+                + "Bad Number,4,1 Main St,(773)000-0000,far,4.0,2,,\n"
+                + "Cafe Con Leche,5,\"2714 N Milwaukee Ave, Chicago, IL 60647\",(773)289-4274,1e0,4.8,2,41.93,-87.70\n"
+                + "Spaced Numbers,6,1 Main St,(773)000-0000, 1.5 ,4.1234567890123456789,2, 41.92 ,-87.71";
+        RestaurantStore store = new RestaurantStore();
+        RestaurantIngest.Report report = RestaurantIngest.csv(new StringReader(csv), store);
+        assertEquals(4, report.added());
+        assertEquals(2, report.rejected());
+        assertEquals(List.of("line 6: Rating has to be within range: 1.0 - 5.0", "line 7: Column 5 is not a number."), report.errors());
+        assertEquals("2657 N Kedzie Ave, Chicago, IL 60647", store.address(0));
+        assertEquals("The \"Old\" Plank", store.name(1));
+        assertEquals("2700 N Milwaukee Ave,\nChicago, IL 60647", store.address(1));
+        assertFalse(store.hasLocation(1));
+        assertEquals(1.0f, store.distance(2));
+        assertEquals(41.93f, store.latitude(2));
+        assertEquals(1.5f, store.distance(3), "Spaces around a number should be ignored");
+        assertEquals(4.1234567890123456789f, store.rating(3));
+        assertEquals(41.92f, store.latitude(3));
+
+        String jsonLines = "{\"id\":\"1\",\"name\":\"Longman & Eagle\",\"address\":\"2657 N Kedzie Ave\",\"phoneNumber\":\"(773)276-7110\",\"distance\":0.1,\"rating\":5,\"priceLevel\":4,\"types\":[\"bar\"]}\n"
+                + "{\"id\":\"2\",\"name\":\"No Price\",\"address\":\"1 Main St\",\"phoneNumber\":\"(773)000-0000\",\"distance\":0.2,\"rating\":4}\n"
+                + "{\"id\":\"3\",\"name\":\"String Numbers\",\"address\":\"1 Main St\",\"phoneNumber\":\"(773)000-0000\",\"distance\":\"0.3\",\"rating\":\"4.5\",\"priceLevel\":\"1\",\"latitude\":41.9,\"longitude\":-87.7}\n"
+                + "[1,2]\n"
+                + "{\"id\":\"5\",\"name\":\"After Array\",\"address\":\"1 Main St\",\"phoneNumber\":\"(773)000-0000\",\"distance\":0.5,\"rating\":4,\"priceLevel\":2}\n";
+        store = new RestaurantStore();
+        report = RestaurantIngest.jsonLines(new StringReader(jsonLines), store);
+        assertEquals(3, report.added());
+        assertEquals(List.of("record 2: Distance, rating and price level are required.",
+                "record 4: Record is not a JSON object."), report.errors());
+        assertEquals("After Array", store.name(2));
+        assertEquals(4.5f, store.rating(1));
+        assertTrue(store.hasLocation(1));
+
+        // a byte order mark before the header is skipped, and a price level beyond int gets the range error
+        String withBom = "\uFEFFid,name,address,phoneNumber,distance,rating,priceLevel\n"
+                + "1,Longman & Eagle,2657 N Kedzie Ave,(773)276-7110,0.1,5.0,4\n"
+                + "2,Huge Price,1 Main St,(773)000-0000,0.1,4.0,1e10\n"
+                + "3,Half Price,1 Main St,(773)000-0000,0.1,4.0,2.5\n";
+        store = new RestaurantStore();
+        report = RestaurantIngest.csv(new StringReader(withBom), store);
+        assertEquals("1", store.id(0));
+        assertEquals(List.of("line 3: Price level has to be within range: 0 - 4", "line 4: Price level has to be a whole number."), report.errors());
+
+        assertThrows(IOException.class, () -> RestaurantIngest.csv(new StringReader("id,name\n1,x\n"), new RestaurantStore()));
+        assertThrows(IOException.class, () -> RestaurantIngest.jsonLines(new StringReader("{\"id\":"), new RestaurantStore()));
+    }
+
+    // Test that the off-heap store returns the same rows as the on-heap store
+    @Test
+    void testOffHeapRestaurantStoreMatchesOnHeapStore() {
+        RestaurantStore onHeap = RestaurantStore.of(RestaurantData.getData());
+        onHeap.add("café-1", "Café Olé 🌮", "2700 N Milwaukee Ave, Chicago, IL 60647", "(773)555-0100", 2.5f, 4.0f, 0, Double.NaN, Double.NaN);
+        // starts with room for one row, so both buffers have to grow
+        OffHeapRestaurantStore offHeap = new OffHeapRestaurantStore(1);
+        for (int row = 0; row < onHeap.size(); row++) assertEquals(row, offHeap.add(onHeap.restaurant(row)));
+
+        assertEquals(onHeap.size(), offHeap.size());
+        for (int row = 0; row < onHeap.size(); row++) {
+            assertEquals(onHeap.restaurant(row), offHeap.restaurant(row));
+            assertEquals(onHeap.restaurant(row).toString(), offHeap.restaurant(row).toString());
+            assertEquals(onHeap.latitude(row), offHeap.latitude(row), 0);
+            assertEquals(onHeap.hasLocation(row), offHeap.hasLocation(row));
+        }
+        assertTrue(offHeap.offHeapBytes() > 40L * onHeap.size());
+        RestaurantStore candidates = offHeap.toStore(new int[]{10, 0});
+        assertEquals("Café Olé 🌮", candidates.name(0));
+        assertEquals("Longman & Eagle", candidates.name(1));
+        assertThrows(IllegalArgumentException.class, () -> offHeap.add("x", "x", "x", "x", 1, 6, 1, Double.NaN, Double.NaN));
+        assertEquals(onHeap.size(), offHeap.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> offHeap.name(-1));
+        // 107,374,183 rows * 40 bytes wraps around to 24 bytes in int arithmetic
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapRestaurantStore(107_374_183));
+    }
+
+    // Test that dictionary-encoded addresses and phone numbers are rebuilt exactly
+    @Test
+    void testAddressAndPhoneColumnsRebuildExactly() {
+        AddressColumn addresses = new AddressColumn();
+        PhoneColumn phones = new PhoneColumn();
+        for (Restaurant restaurant : RestaurantData.getData()) {
+            addresses.add(restaurant.getAddress());
+            phones.add(restaurant.getPhoneNum());
+        }
+        // every sample address is in Chicago, IL 60647; one phone number has a leading space
+        assertEquals(1, addresses.localityCount());
+        assertEquals(2, phones.formatCount());
+
+        String[] oddAddresses = {"No Comma St", ", Chicago", "A, , B", "12 Rue Café, Suite 4, Montréal, QC H2X", ""};
+        String[] oddPhones = {"+1 (773) 276-7110 ext. 12", "0044 20 7946 0018", "#42", "1234567890123456789", "none", ""};
+        int firstAddress = addresses.size();
+        for (String address : oddAddresses) addresses.add(address);
+        int firstPhone = phones.size();
+        for (String phone : oddPhones) phones.add(phone);
+        for (int i = 0; i < oddAddresses.length; i++) assertEquals(oddAddresses[i], addresses.get(firstAddress + i));
+        for (int i = 0; i < oddPhones.length; i++) assertEquals(oddPhones[i], phones.get(firstPhone + i));
+
+        Restaurant[] data = RestaurantData.getData();
+        RestaurantStore store = RestaurantStore.of(data);
+        for (int row = 0; row < data.length; row++) {
+            assertEquals(data[row].getAddress(), store.address(row));
+            assertEquals(data[row].getPhoneNum(), store.phoneNumber(row));
+        }
+    }
+
+}